@@ -0,0 +1,92 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx.benchmarks;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.graphics.GL20;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.IntBuffer;
+
+/**
+ * The HeadlessBenchmarkEnvironment class initializes the libGDX headless backend so the screens can
+ * be created and updated without a window or a GL context. All GL calls are no-ops, except for the
+ * shader compile/link status queries which report success so sprite batches can be created.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public final class HeadlessBenchmarkEnvironment {
+
+  /**
+   * Creates a new HeadlessBenchmarkEnvironment.
+   */
+  private HeadlessBenchmarkEnvironment() {
+    // do nothing
+  }
+
+  /**
+   * Initializes the headless backend (if it has not already been initialized).
+   */
+  public static synchronized void initialize() {
+
+    if (Gdx.app != null) {
+      return;
+    }
+
+    // a negative render interval creates the application without starting the render loop
+    HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+    config.renderInterval = -1;
+    new HeadlessApplication(new ApplicationAdapter() {
+    }, config);
+
+    GL20 gl20 = (GL20) Proxy.newProxyInstance(GL20.class.getClassLoader(),
+        new Class<?>[]{GL20.class}, new NoOpGl20InvocationHandler());
+    Gdx.gl = gl20;
+    Gdx.gl20 = gl20;
+
+  }
+
+  /**
+   * The NoOpGl20InvocationHandler class implements the InvocationHandler interface to provide a
+   * GL20 implementation that does nothing.
+   */
+  protected static class NoOpGl20InvocationHandler implements InvocationHandler {
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+
+      String name = method.getName();
+      if (name.equals("glGetShaderiv") || name.equals("glGetProgramiv")) {
+        int pname = (Integer) args[1];
+        ((IntBuffer) args[2]).put(0, pname == GL20.GL_COMPILE_STATUS
+            || pname == GL20.GL_LINK_STATUS ? 1 : 0);
+        return null;
+      }
+
+      Class<?> returnType = method.getReturnType();
+      if (returnType == int.class) {
+        // non-zero so generated handles (textures, shaders, buffers) look valid
+        return 1;
+      } else if (returnType == boolean.class) {
+        return false;
+      } else if (returnType == float.class) {
+        return 0.0f;
+      } else if (returnType == String.class) {
+        return "";
+      }
+      return null;
+
+    }
+
+  }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx.benchmarks;
+
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+
+import com.exit104.maurersmarbles.Game;
+import com.exit104.maurersmarbles.ScoreBasedPlaySelector;
+import com.exit104.maurersmarbles.event.Event;
+import com.exit104.maurersmarbles.event.EventListener;
+import com.exit104.maurersmarbles.event.ExitedStateGameEvent;
+import com.exit104.maurersmarbles.libgdx.ai.AiDifficulty;
+import com.exit104.maurersmarbles.libgdx.ai.Ponderer;
+import com.exit104.maurersmarbles.libgdx.ai.PonderingPlaySelector;
+
+/**
+ * The PonderingVerifier class is the headless entry point used to check that the Ponderer
+ * precomputes the decisions of the searching AI players. A game is played the way GameStageScreen
+ * plays it: player 0 stands in for the user (a seat that is not pondered), the other players search
+ * at the given difficulty through a PonderingPlaySelector, and after each advance the ponderer runs
+ * for the time the animations of the advance would take. The number of decisions taken from the
+ * cache (hits) and searched again (misses) is printed, and the exit code is non-zero if there were
+ * no hits.
+ *
+ * <p>Usage: PonderingVerifier [aiDifficulty [numberOfPlayers]]
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public final class PonderingVerifier {
+
+  /**
+   * The time (in milliseconds) the animations of an advance are assumed to take (the time the
+   * ponderer runs after each advance).
+   */
+  protected static final long ANIMATION_MILLIS = 500L;
+  /**
+   * The maximum number of times the game is advanced before it is abandoned.
+   */
+  protected static final int MAX_ADVANCES = 100000;
+
+  /**
+   * Prevents instances of PonderingVerifier from being created.
+   */
+  private PonderingVerifier() {
+    // do nothing
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+
+    HeadlessBenchmarkEnvironment.initialize();
+
+    AiDifficulty aiDifficulty = args.length > 0 ? AiDifficulty.valueOf(args[0])
+        : AiDifficulty.NORMAL;
+    int numberOfPlayers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+    if (aiDifficulty.getNumberOfThreads() == 0) {
+      throw new IllegalArgumentException(aiDifficulty + " does not search, so it is not pondered");
+    }
+
+    Game game = new Game(numberOfPlayers);
+    AsyncExecutor aiExecutor = new AsyncExecutor(aiDifficulty.getNumberOfThreads(), "ai");
+    Ponderer ponderer = new Ponderer(aiDifficulty, aiExecutor);
+    game.getPlayers().get(0).setPlaySelector(new ScoreBasedPlaySelector(game, 0));
+    for (int i = 1; i < numberOfPlayers; i++) {
+      game.getPlayers().get(i).setPlaySelector(new PonderingPlaySelector(game, i,
+          aiDifficulty.createPlaySelector(game, i, aiExecutor), ponderer));
+    }
+    final boolean[] gameOver = new boolean[1];
+    game.addEventListener(new EventListener() {
+      @Override
+      public void handleEvent(Event event) {
+        if (event instanceof ExitedStateGameEvent
+            && ((ExitedStateGameEvent) event).getState() == Game.State.GAME_OVER) {
+          gameOver[0] = true;
+        }
+      }
+    });
+
+    // advance the game the way the game logic executor does, with the ponderer running while the
+    // animations would be running
+    long startNanos = System.nanoTime();
+    for (int i = 0; i < MAX_ADVANCES && !gameOver[0]; i++) {
+      ponderer.beforeAdvance(game);
+      game.advance();
+      ponderer.afterAdvance(game);
+      Thread.sleep(ANIMATION_MILLIS);
+    }
+    ponderer.dispose();
+    aiExecutor.dispose();
+
+    long elapsedMillis = (System.nanoTime() - startNanos) / 1000000L;
+    int numberOfHits = ponderer.getNumberOfHits();
+    int numberOfMisses = ponderer.getNumberOfMisses();
+    System.out.println(aiDifficulty + ", " + numberOfPlayers + " players: " + numberOfHits
+        + " hits, " + numberOfMisses + " misses (" + elapsedMillis + " ms)");
+    System.exit(numberOfHits > 0 ? 0 : 1);
+
+  }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx.benchmarks;
+
+import com.exit104.maurersmarbles.Game;
+import com.exit104.maurersmarbles.ScoreBasedPlaySelector;
+import com.exit104.maurersmarbles.event.Event;
+import com.exit104.maurersmarbles.event.EventListener;
+import com.exit104.maurersmarbles.event.ExitedStateGameEvent;
+import com.exit104.maurersmarbles.libgdx.GameRecorder;
+import com.exit104.maurersmarbles.libgdx.GameReplay;
+import com.exit104.maurersmarbles.libgdx.MaurersMarblesGame;
+import com.exit104.maurersmarbles.libgdx.screens.GameStageScreen;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * The ReplayVerifier class is the headless entry point used to check that recorded games replay
+ * through the GameStageScreen (with the animations skipped) without diverging from the recorded
+ * game. Each replay is then run again on a new screen that seeks to halfway (through the nearest
+ * keyframe) to check the keyframes. The replay files given on the command line are verified, or if
+ * there are none, all AI games are recorded and then verified. The exit code is the number of
+ * replays that failed.
+ *
+ * <p>Usage: ReplayVerifier [replayFile...]
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public final class ReplayVerifier {
+
+  /**
+   * The width of the screen.
+   */
+  protected static final int SCREEN_WIDTH = 1280;
+  /**
+   * The height of the screen.
+   */
+  protected static final int SCREEN_HEIGHT = 720;
+  /**
+   * The number of players in each of the games recorded when there are no replay files.
+   */
+  protected static final int[] NUMBER_OF_PLAYERS = new int[]{2, 4, 6};
+  /**
+   * The maximum number of times a recorded game is advanced before it is abandoned.
+   */
+  protected static final int MAX_ADVANCES = 100000;
+
+  /**
+   * Prevents instances of ReplayVerifier from being created.
+   */
+  private ReplayVerifier() {
+    // do nothing
+  }
+
+  public static void main(String[] args) throws IOException {
+
+    HeadlessBenchmarkEnvironment.initialize();
+
+    MaurersMarblesGame maurersMarblesGame = new MaurersMarblesGame();
+    maurersMarblesGame.acquireGameAssets();
+    maurersMarblesGame.getAssetManager().finishLoading();
+
+    int numberOfFailures = 0;
+    if (args.length > 0) {
+      for (String arg : args) {
+        byte[] bytes = Files.readAllBytes(new File(arg).toPath());
+        numberOfFailures += verify(maurersMarblesGame, arg, bytes) ? 0 : 1;
+      }
+    } else {
+      for (int i = 0; i < NUMBER_OF_PLAYERS.length; i++) {
+        byte[] bytes = record(NUMBER_OF_PLAYERS[i], i);
+        numberOfFailures += verify(maurersMarblesGame, NUMBER_OF_PLAYERS[i] + " players", bytes)
+            ? 0 : 1;
+      }
+    }
+
+    maurersMarblesGame.dispose();
+    System.exit(numberOfFailures);
+
+  }
+
+  /**
+   * Plays an all AI game to the end and returns the recording of the game.
+   *
+   * @param numberOfPlayers the number of players in the game
+   * @param seed the seed for the presentation randomness
+   * @return the recording of the game
+   */
+  protected static byte[] record(int numberOfPlayers, long seed) {
+    Game game = new Game(numberOfPlayers);
+    GameRecorder gameRecorder = new GameRecorder(game, seed);
+    for (int playerNumber = 0; playerNumber < numberOfPlayers; playerNumber++) {
+      game.getPlayers().get(playerNumber).setPlaySelector(gameRecorder.createRecordedPlaySelector(
+          playerNumber, new ScoreBasedPlaySelector(game, playerNumber)));
+    }
+    final boolean[] gameOver = new boolean[1];
+    game.addEventListener(new EventListener() {
+      @Override
+      public void handleEvent(Event event) {
+        if (event instanceof ExitedStateGameEvent
+            && ((ExitedStateGameEvent) event).getState() == Game.State.GAME_OVER) {
+          gameOver[0] = true;
+        }
+      }
+    });
+    for (int i = 0; i < MAX_ADVANCES && !gameOver[0]; i++) {
+      game.advance();
+    }
+    return gameRecorder.toBytes(gameRecorder.getLength());
+  }
+
+  /**
+   * Replays the given recording through a GameStageScreen with the animations skipped, then replays
+   * it again from halfway on a new GameStageScreen that seeks there, and prints the result.
+   *
+   * @param maurersMarblesGame the game for the screen
+   * @param name the name of the recording
+   * @param bytes the recording
+   * @return whether or not the recording replayed to the end without diverging
+   */
+  protected static boolean verify(MaurersMarblesGame maurersMarblesGame, String name,
+      byte[] bytes) {
+
+    long startNanos = System.nanoTime();
+    GameReplay gameReplay;
+    try {
+      gameReplay = new GameReplay(bytes);
+    } catch (IOException ex) {
+      System.out.println(name + ": FAILED (" + ex.getMessage() + ")");
+      return false;
+    }
+
+    GameStageScreen gameStageScreen = new GameStageScreen(maurersMarblesGame, gameReplay);
+    try {
+      gameStageScreen.setSkipAnimations(true);
+      // the first resize starts the replay, the first frame runs it to the end
+      gameStageScreen.resize(SCREEN_WIDTH, SCREEN_HEIGHT);
+      gameStageScreen.render(0.0f);
+      if (!gameStageScreen.isReplayFinished()) {
+        System.out.println(name + ": FAILED (the replay stopped at record "
+            + gameReplay.getRecordNumber() + ")");
+        return false;
+      }
+      // seek back to the middle (starting at a keyframe taken by the first run) and run to the end
+      // again on a new screen
+      int numberOfSteps = gameReplay.getStepNumber();
+      GameStageScreen seekGameStageScreen = gameStageScreen.seekReplay(numberOfSteps / 2);
+      gameStageScreen.dispose();
+      gameStageScreen = seekGameStageScreen;
+      gameStageScreen.resize(SCREEN_WIDTH, SCREEN_HEIGHT);
+      gameStageScreen.render(0.0f);
+      gameReplay = gameStageScreen.getGameReplay();
+      if (!gameStageScreen.isReplayFinished() || gameReplay.getStepNumber() != numberOfSteps) {
+        System.out.println(name + ": FAILED (the replay stopped at record "
+            + gameReplay.getRecordNumber() + " after seeking)");
+        return false;
+      }
+    } catch (RuntimeException ex) {
+      System.out.println(name + ": FAILED (" + ex.getMessage() + ")");
+      return false;
+    } finally {
+      gameStageScreen.dispose();
+    }
+
+    long elapsedMillis = (System.nanoTime() - startNanos) / 1000000L;
+    System.out.println(name + ": OK (" + gameReplay.getRecordNumber() + " records, "
+        + gameReplay.getStepNumber() + " steps, " + bytes.length + " bytes, " + elapsedMillis
+        + " ms)");
+    return true;
+
+  }
+
+}
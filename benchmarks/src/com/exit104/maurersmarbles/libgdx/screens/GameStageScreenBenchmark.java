@@ -0,0 +1,246 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx.screens;
+
+import com.badlogic.gdx.scenes.scene2d.Action;
+
+import com.exit104.maurersmarbles.Game;
+import com.exit104.maurersmarbles.ScoreBasedPlaySelector;
+import com.exit104.maurersmarbles.event.DealtCardGameEvent;
+import com.exit104.maurersmarbles.event.Event;
+import com.exit104.maurersmarbles.event.EventListener;
+import com.exit104.maurersmarbles.event.ExitedStateGameEvent;
+import com.exit104.maurersmarbles.event.MovedMarbleGameEvent;
+import com.exit104.maurersmarbles.event.PlayedCardGameEvent;
+import com.exit104.maurersmarbles.libgdx.MaurersMarblesGame;
+import com.exit104.maurersmarbles.libgdx.benchmarks.HeadlessBenchmarkEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The GameStageScreenBenchmark class benchmarks the GameStageScreen code that runs every time the
+ * game state changes (actor layout and animation action building). The screen is created using the
+ * headless backend and an all AI game is played until there is at least one of each event to
+ * replay in the benchmarks.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameStageScreenBenchmark {
+
+  /**
+   * The width of the screen.
+   */
+  protected static final int SCREEN_WIDTH = 1280;
+  /**
+   * The height of the screen.
+   */
+  protected static final int SCREEN_HEIGHT = 720;
+  /**
+   * The maximum number of frames to act while waiting for the events to replay.
+   */
+  protected static final int MAX_FRAMES = 100000;
+  /**
+   * The time (in seconds) the clock is advanced by for each frame (longer than any animation).
+   */
+  protected static final float FRAME_TIME = 1.0f;
+  /**
+   * The number of players in the game.
+   */
+  @Param({"2", "4", "6"})
+  public int numberOfPlayers;
+  /**
+   * The game screen being benchmarked.
+   */
+  protected GameStageScreen gameStageScreen;
+  /**
+   * The recorder used to capture the events to replay.
+   */
+  protected EventRecorder eventRecorder;
+
+  @Setup
+  public void setUp() {
+
+    HeadlessBenchmarkEnvironment.initialize();
+
+    MaurersMarblesGame maurersMarblesGame = new MaurersMarblesGame();
+    maurersMarblesGame.acquireGameAssets();
+    maurersMarblesGame.getAssetManager().finishLoading();
+
+    gameStageScreen = new GameStageScreen(maurersMarblesGame, numberOfPlayers);
+
+    // replace the user with an AI player so the game advances without any input
+    Game game = gameStageScreen.game;
+    game.getPlayers().get(GameStageScreen.USER_PLAYER_NUMBER).setPlaySelector(
+        new ScoreBasedPlaySelector(game, GameStageScreen.USER_PLAYER_NUMBER));
+    eventRecorder = new EventRecorder();
+    game.addEventListener(eventRecorder);
+
+    // the first resize starts the game, then advance the clock (which waits for the game logic
+    // at each step) until there are events to replay
+    gameStageScreen.setManualClock(true);
+    gameStageScreen.resize(SCREEN_WIDTH, SCREEN_HEIGHT);
+    for (int frame = 0; frame < MAX_FRAMES && !eventRecorder.isComplete(); frame++) {
+      gameStageScreen.advanceTime(FRAME_TIME);
+    }
+    gameStageScreen.gameLogicExecutor.awaitIdle();
+    if (!eventRecorder.isComplete()) {
+      throw new IllegalStateException("Unable to record the events to replay");
+    }
+    gameStageScreen.stage.getRoot().clearActions();
+
+  }
+
+  @Benchmark
+  public void updateBoardActors() {
+    gameStageScreen.updateBoardActors();
+  }
+
+  @Benchmark
+  public void updateCardActors() {
+    gameStageScreen.updateCardActors();
+  }
+
+  @Benchmark
+  public void updateCardActorsInvalidated() {
+    gameStageScreen.invalidateCardLayout();
+    gameStageScreen.updateCardActors();
+  }
+
+  @Benchmark
+  public void updateMarbleActors() {
+    gameStageScreen.updateMarbleActors();
+  }
+
+  @Benchmark
+  public Action getActionToDealCard() {
+    return gameStageScreen.getActionToDealCard(eventRecorder.dealtCardGameEvent, true);
+  }
+
+  @Benchmark
+  public Action getActionToMoveMarble() {
+    return gameStageScreen.getActionToMoveMarble(eventRecorder.movedMarbleGameEvent);
+  }
+
+  @Benchmark
+  public Action getActionToPlayCard() {
+    return gameStageScreen.getActionToPlayCard(eventRecorder.playedCardGameEvent, false);
+  }
+
+  @Benchmark
+  public int handleExitedStateGameEventDealCards() {
+    return handleExitedStateGameEvent(eventRecorder.dealCardsEvents,
+        eventRecorder.dealCardsExitedStateGameEvent);
+  }
+
+  @Benchmark
+  public int handleExitedStateGameEventPlayerTurn() {
+    return handleExitedStateGameEvent(eventRecorder.playerTurnEvents,
+        eventRecorder.playerTurnExitedStateGameEvent);
+  }
+
+  /**
+   * Queues the given events, handles the given exited state game event and then discards the
+   * actions that were created.
+   *
+   * @param events the events to queue
+   * @param exitedStateGameEvent the exited state game event to handle
+   * @return the number of actions that were created
+   */
+  protected int handleExitedStateGameEvent(List<Event> events,
+      ExitedStateGameEvent exitedStateGameEvent) {
+    for (int i = 0; i < events.size(); i++) {
+      gameStageScreen.queuedEvents.add(events.get(i));
+    }
+    gameStageScreen.handleExitedStateGameEvent(exitedStateGameEvent);
+    int numberOfActions = gameStageScreen.stage.getRoot().getActions().size;
+    gameStageScreen.stage.getRoot().clearActions();
+    return numberOfActions;
+  }
+
+  /**
+   * The EventRecorder class implements the EventListener interface to capture one of each of the
+   * events that are replayed in the benchmarks.
+   */
+  protected static class EventRecorder implements EventListener {
+
+    /**
+     * The events fired since the last exited state game event.
+     */
+    protected final transient List<Event> events = new ArrayList<>();
+    protected transient List<Event> dealCardsEvents;
+    protected transient ExitedStateGameEvent dealCardsExitedStateGameEvent;
+    protected transient List<Event> playerTurnEvents;
+    protected transient ExitedStateGameEvent playerTurnExitedStateGameEvent;
+    protected transient DealtCardGameEvent dealtCardGameEvent;
+    protected transient MovedMarbleGameEvent movedMarbleGameEvent;
+    protected transient PlayedCardGameEvent playedCardGameEvent;
+
+    /**
+     * Returns whether or not all of the events to replay have been captured.
+     *
+     * @return whether or not all of the events to replay have been captured
+     */
+    public boolean isComplete() {
+      return dealCardsExitedStateGameEvent != null && playerTurnExitedStateGameEvent != null;
+    }
+
+    @Override
+    public void handleEvent(Event event) {
+
+      if (event instanceof ExitedStateGameEvent) {
+
+        ExitedStateGameEvent exitedStateGameEvent = (ExitedStateGameEvent) event;
+        if (exitedStateGameEvent.getState() == Game.State.DEAL_CARDS
+            && dealCardsExitedStateGameEvent == null) {
+          dealCardsEvents = new ArrayList<>(events);
+          dealCardsExitedStateGameEvent = exitedStateGameEvent;
+        } else if (exitedStateGameEvent.getState() == Game.State.PLAYER_TURN
+            && playerTurnExitedStateGameEvent == null && movedMarbleGameEvent != null
+            && playedCardGameEvent != null) {
+          playerTurnEvents = new ArrayList<>(events);
+          playerTurnExitedStateGameEvent = exitedStateGameEvent;
+        }
+        events.clear();
+
+      } else {
+
+        events.add(event);
+        if (event instanceof DealtCardGameEvent && dealtCardGameEvent == null) {
+          dealtCardGameEvent = (DealtCardGameEvent) event;
+        } else if (event instanceof MovedMarbleGameEvent && movedMarbleGameEvent == null) {
+          movedMarbleGameEvent = (MovedMarbleGameEvent) event;
+        } else if (event instanceof PlayedCardGameEvent && playedCardGameEvent == null) {
+          playedCardGameEvent = (PlayedCardGameEvent) event;
+        }
+
+      }
+
+    }
+
+  }
+
+}
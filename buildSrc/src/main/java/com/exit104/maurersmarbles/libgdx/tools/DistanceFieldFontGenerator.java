@@ -0,0 +1,182 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx.tools;
+
+import com.badlogic.gdx.tools.distancefield.DistanceFieldGenerator;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.LineMetrics;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+import javax.imageio.ImageIO;
+
+/**
+ * The DistanceFieldFontGenerator class generates a distance field bitmap font (an AngelCode BMFont
+ * text file and a single page image) from a TrueType font. The glyphs are rendered at DOWNSCALE
+ * times the font size and converted to a distance field with the libGDX DistanceFieldGenerator, so
+ * the font stays sharp when it is drawn at any scale with the distance field shader.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public final class DistanceFieldFontGenerator {
+
+  /**
+   * The first character in the font (space).
+   */
+  public static final char FIRST_CHARACTER = 32;
+  /**
+   * The last character in the font (tilde).
+   */
+  public static final char LAST_CHARACTER = 126;
+  /**
+   * The factor the glyphs are rendered larger than the font size before the distance field is
+   * generated.
+   */
+  public static final int DOWNSCALE = 8;
+  /**
+   * The distance (in pixels of the generated image) covered by the distance field on each side of
+   * a glyph edge. This is also the padding around each glyph.
+   */
+  public static final int SPREAD = 4;
+  /**
+   * The width (in pixels) of the generated image.
+   */
+  public static final int PAGE_WIDTH = 512;
+  /**
+   * The number of empty pixels between the glyphs in the generated image.
+   */
+  public static final int SPACING = 1;
+
+  /**
+   * Prevents instances of DistanceFieldFontGenerator from being created.
+   */
+  private DistanceFieldFontGenerator() {
+    // do nothing
+  }
+
+  /**
+   * Generates a distance field font (name.fnt and name.png) from the given TrueType font.
+   *
+   * @param fontFile the TrueType font file
+   * @param outputDir the directory the font files are written to
+   * @param name the name of the generated font files (without the extension)
+   * @param size the font size (in pixels)
+   * @throws IOException if the font cannot be read or the font files cannot be written
+   * @throws FontFormatException if the font file is not a TrueType font
+   */
+  public static void generate(File fontFile, File outputDir, String name, int size)
+      throws IOException, FontFormatException {
+
+    Font font = Font.createFont(Font.TRUETYPE_FONT, fontFile).deriveFont(
+        (float) (size * DOWNSCALE));
+    FontRenderContext fontRenderContext = new FontRenderContext(null, true, true);
+    LineMetrics lineMetrics = font.getLineMetrics("A", fontRenderContext);
+    int base = Math.round(lineMetrics.getAscent() / DOWNSCALE);
+    int lineHeight = Math.round(lineMetrics.getHeight() / DOWNSCALE);
+
+    // lay out the glyphs in rows (in pixels of the generated image)
+    int numberOfCharacters = LAST_CHARACTER - FIRST_CHARACTER + 1;
+    GlyphVector[] glyphVectors = new GlyphVector[numberOfCharacters];
+    int[][] glyphs = new int[numberOfCharacters][];
+    int x = SPACING;
+    int y = SPACING;
+    int rowHeight = 0;
+    for (int i = 0; i < numberOfCharacters; i++) {
+
+      GlyphVector glyphVector = font.createGlyphVector(fontRenderContext,
+          String.valueOf((char) (FIRST_CHARACTER + i)));
+      glyphVectors[i] = glyphVector;
+      Rectangle pixelBounds = glyphVector.getPixelBounds(fontRenderContext, 0, 0);
+      int xadvance = Math.round(glyphVector.getGlyphMetrics(0).getAdvanceX() / DOWNSCALE);
+
+      if (pixelBounds.isEmpty()) {
+        // no image for the glyph (space)
+        glyphs[i] = new int[]{0, 0, 0, 0, 0, 0, xadvance};
+        continue;
+      }
+
+      // the glyph bounds are rounded out to whole pixels of the generated image
+      int minX = Math.floorDiv(pixelBounds.x, DOWNSCALE);
+      int minY = Math.floorDiv(pixelBounds.y, DOWNSCALE);
+      int maxX = -Math.floorDiv(-(pixelBounds.x + pixelBounds.width), DOWNSCALE);
+      int maxY = -Math.floorDiv(-(pixelBounds.y + pixelBounds.height), DOWNSCALE);
+      int width = maxX - minX + 2 * SPREAD;
+      int height = maxY - minY + 2 * SPREAD;
+
+      if (x + width + SPACING > PAGE_WIDTH) {
+        x = SPACING;
+        y += rowHeight + SPACING;
+        rowHeight = 0;
+      }
+      glyphs[i] = new int[]{x, y, width, height, minX - SPREAD, base + minY - SPREAD, xadvance};
+      x += width + SPACING;
+      rowHeight = Math.max(rowHeight, height);
+
+    }
+    int pageHeight = Integer.highestOneBit(y + rowHeight + SPACING - 1) << 1;
+
+    // render the glyphs (white on transparent) at the larger size
+    BufferedImage glyphImage = new BufferedImage(PAGE_WIDTH * DOWNSCALE, pageHeight * DOWNSCALE,
+        BufferedImage.TYPE_INT_ARGB);
+    Graphics2D graphics = glyphImage.createGraphics();
+    graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS,
+        RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+    graphics.setColor(Color.WHITE);
+    for (int i = 0; i < numberOfCharacters; i++) {
+      int[] glyph = glyphs[i];
+      if (glyph[2] > 0) {
+        // the glyph origin is offset from the glyph image by the x and y offsets
+        graphics.drawGlyphVector(glyphVectors[i], (glyph[0] - glyph[4]) * DOWNSCALE,
+            (glyph[1] - glyph[5] + base) * DOWNSCALE);
+      }
+    }
+    graphics.dispose();
+
+    DistanceFieldGenerator distanceFieldGenerator = new DistanceFieldGenerator();
+    distanceFieldGenerator.setColor(Color.WHITE);
+    distanceFieldGenerator.setDownscale(DOWNSCALE);
+    distanceFieldGenerator.setSpread(SPREAD * DOWNSCALE);
+    BufferedImage distanceFieldImage = distanceFieldGenerator.generateDistanceField(glyphImage);
+
+    if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+      throw new IOException("Unable to create directory: " + outputDir);
+    }
+    ImageIO.write(distanceFieldImage, "png", new File(outputDir, name + ".png"));
+
+    try (PrintWriter printWriter = new PrintWriter(new File(outputDir, name + ".fnt"),
+        StandardCharsets.UTF_8.name())) {
+      printWriter.print("info face=\"" + font.getFontName() + "\" size=" + size
+          + " bold=0 italic=0 charset=\"\" unicode=1 stretchH=100 smooth=1 aa=1 padding="
+          + SPREAD + "," + SPREAD + "," + SPREAD + "," + SPREAD + " spacing=" + SPACING + ","
+          + SPACING + "\n");
+      printWriter.print("common lineHeight=" + lineHeight + " base=" + base + " scaleW="
+          + PAGE_WIDTH + " scaleH=" + pageHeight + " pages=1 packed=0\n");
+      printWriter.print("page id=0 file=\"" + name + ".png\"\n");
+      printWriter.print("chars count=" + numberOfCharacters + "\n");
+      for (int i = 0; i < numberOfCharacters; i++) {
+        int[] glyph = glyphs[i];
+        printWriter.print("char id=" + (FIRST_CHARACTER + i) + " x=" + glyph[0] + " y="
+            + glyph[1] + " width=" + glyph[2] + " height=" + glyph[3] + " xoffset=" + glyph[4]
+            + " yoffset=" + glyph[5] + " xadvance=" + glyph[6] + " page=0 chnl=0\n");
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx;
+
+import com.exit104.maurersmarbles.Card;
+
+import java.util.Arrays;
+
+/**
+ * The CardTable class maps cards to values using an array that is indexed by the card rank and suit
+ * ordinals. Lookups do not allocate, build strings or compare keys, so the table can be used in
+ * layout passes and input handling.
+ *
+ * @param <T> the type of the values in the table
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class CardTable<T> {
+
+  /**
+   * The card ranks (cached since values() returns a new array each time).
+   */
+  protected static final Card.Rank[] RANKS = Card.Rank.values();
+  /**
+   * The card suits (cached since values() returns a new array each time).
+   */
+  protected static final Card.Suit[] SUITS = Card.Suit.values();
+  /**
+   * The number of entries in the table (one for each rank and suit combination).
+   */
+  public static final int SIZE = RANKS.length * SUITS.length;
+  /**
+   * The array of values. The index into the array is the card index (see getIndex()) and the value
+   * is the value for that card (or null).
+   */
+  protected final transient Object[] values = new Object[SIZE];
+
+  /**
+   * Creates a new CardTable.
+   */
+  public CardTable() {
+    // do nothing
+  }
+
+  /**
+   * Returns the index into the table for the given card.
+   *
+   * @param card the card
+   * @return the index into the table for the given card
+   */
+  public static int getIndex(Card card) {
+    return card.getRank().ordinal() * SUITS.length + card.getSuit().ordinal();
+  }
+
+  /**
+   * Removes all of the values from the table.
+   */
+  public void clear() {
+    Arrays.fill(values, null);
+  }
+
+  /**
+   * Returns the value for the given card.
+   *
+   * @param card the card
+   * @return the value for the given card (or null if there is no value for the card)
+   */
+  public T get(Card card) {
+    return get(getIndex(card));
+  }
+
+  /**
+   * Returns the value at the given index.
+   *
+   * @param index the index into the table (see getIndex())
+   * @return the value at the given index (or null if there is no value at the index)
+   */
+  @SuppressWarnings("unchecked")
+  public T get(int index) {
+    return (T) values[index];
+  }
+
+  /**
+   * Sets the value for the given card.
+   *
+   * @param card the card
+   * @param value the value for the card
+   */
+  public void put(Card card, T value) {
+    values[getIndex(card)] = value;
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.Group;
+import com.badlogic.gdx.scenes.scene2d.Touchable;
+import com.badlogic.gdx.utils.SnapshotArray;
+
+/**
+ * The CullingGroup class extends the Group class to skip the children that cannot be seen. The
+ * group is a layer that is never rotated or scaled (no transform is pushed), so the culling area is
+ * in the same coordinates as the parent. The children outside of the culling area or hidden are
+ * not drawn (see Group.drawChildren()), a touch outside of the culling area is not hit tested
+ * against any child, and a child is only acted when it has actions (or is a visible group inside
+ * of the culling area, since its own children may have actions). Hiding the group skips all of its
+ * children at once.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class CullingGroup extends Group {
+
+  /**
+   * The culling area (reused when the culling bounds change).
+   */
+  protected final transient Rectangle cullingBounds = new Rectangle();
+
+  /**
+   * Creates a new CullingGroup.
+   */
+  public CullingGroup() {
+    setTransform(false);
+  }
+
+  /**
+   * Sets the culling area to the given bounds (in the coordinates of the parent).
+   *
+   * @param x the x coordinate of the culling area
+   * @param y the y coordinate of the culling area
+   * @param width the width of the culling area
+   * @param height the height of the culling area
+   */
+  public void setCullingBounds(float x, float y, float width, float height) {
+    setCullingArea(cullingBounds.set(x - getX(), y - getY(), width, height));
+  }
+
+  /**
+   * Returns whether or not the given child is outside of the culling area.
+   *
+   * @param child the child
+   * @return whether or not the given child is outside of the culling area
+   */
+  protected boolean isCulled(Actor child) {
+    Rectangle cullingArea = getCullingArea();
+    return cullingArea != null && (child.getX() > cullingArea.x + cullingArea.width
+        || child.getX() + child.getWidth() < cullingArea.x
+        || child.getY() > cullingArea.y + cullingArea.height
+        || child.getY() + child.getHeight() < cullingArea.y);
+  }
+
+  @Override
+  public void act(float delta) {
+
+    if (hasActions()) {
+      // the group's own actions are run by Group.act(), which also acts all of the children
+      super.act(delta);
+      return;
+    }
+
+    // acting a child without actions does nothing, so only the children with actions (and the
+    // groups that can be seen) are visited
+    SnapshotArray<Actor> children = getChildren();
+    Actor[] actors = children.begin();
+    for (int i = 0, n = children.size; i < n; i++) {
+      Actor child = actors[i];
+      if (child.hasActions() || (child instanceof Group && child.isVisible()
+          && !isCulled(child))) {
+        child.act(delta);
+      }
+    }
+    children.end();
+
+  }
+
+  @Override
+  public Actor hit(float x, float y, boolean touchable) {
+    if (touchable && getTouchable() == Touchable.disabled) {
+      return null;
+    }
+    if (!isVisible()) {
+      return null;
+    }
+    Rectangle cullingArea = getCullingArea();
+    if (cullingArea != null && !cullingArea.contains(x, y)) {
+      return null;
+    }
+    return super.hit(x, y, touchable);
+  }
+
+}
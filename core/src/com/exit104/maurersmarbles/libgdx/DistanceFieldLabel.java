@@ -0,0 +1,53 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx;
+
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.DistanceFieldFont;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.scenes.scene2d.ui.Label;
+
+/**
+ * The DistanceFieldLabel class extends the Label class to draw the text of a distance field font
+ * with the distance field shader. The text is sized with the font scale (see
+ * FontRegistry.getFontScale()) and the edge smoothing is adjusted for the scale, so the text stays
+ * sharp at any size.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class DistanceFieldLabel extends Label {
+
+  /**
+   * The shader used to draw the distance field font.
+   */
+  protected final transient ShaderProgram distanceFieldShader;
+
+  /**
+   * Creates a new DistanceFieldLabel.
+   *
+   * @param text the text of the label
+   * @param style the style of the label (the font must be a distance field font)
+   * @param distanceFieldShader the shader used to draw the distance field font
+   */
+  public DistanceFieldLabel(CharSequence text, LabelStyle style,
+      ShaderProgram distanceFieldShader) {
+    super(text, style);
+    this.distanceFieldShader = distanceFieldShader;
+  }
+
+  @Override
+  public void draw(Batch batch, float parentAlpha) {
+    ShaderProgram shader = batch.getShader();
+    batch.setShader(distanceFieldShader);
+    // the font is shared, so the smoothing for this label's scale is set every time it is drawn
+    ((DistanceFieldFont) getStyle().font).setDistanceFieldSmoothing(
+        FontRegistry.DISTANCE_FIELD_SPREAD * getFontScaleX());
+    super.draw(batch, parentAlpha);
+    batch.setShader(shader);
+  }
+
+}
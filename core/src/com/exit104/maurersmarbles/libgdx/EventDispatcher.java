@@ -0,0 +1,124 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx;
+
+import com.badlogic.gdx.utils.ObjectMap;
+
+import com.exit104.maurersmarbles.event.Event;
+
+/**
+ * The EventDispatcher class maps event classes to event handlers so an event can be dispatched to
+ * its handler with a single map lookup (instead of a chain of instanceof checks). Events without a
+ * handler for their exact class are resolved once using their superclasses and the result is
+ * cached, so the cost of dispatching does not grow with the number of event types. The handlers
+ * should be registered before any events are dispatched.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class EventDispatcher {
+
+  /**
+   * The handler used to cache that there is no handler for an event class.
+   */
+  protected static final EventHandler<Event> NO_EVENT_HANDLER = new EventHandler<Event>() {
+    @Override
+    public void handleEvent(Event event) {
+      // do nothing
+    }
+  };
+  /**
+   * The handler used for events that do not have a handler for their class (or superclasses).
+   */
+  protected transient EventHandler<Event> defaultEventHandler = NO_EVENT_HANDLER;
+  /**
+   * The map that contains the event handlers. The key into the map is the event class and the value
+   * is the event handler for that class.
+   */
+  protected final transient ObjectMap<Class<?>, EventHandler<Event>> eventHandlers
+      = new ObjectMap<>();
+
+  /**
+   * Creates a new EventDispatcher.
+   */
+  public EventDispatcher() {
+    // do nothing
+  }
+
+  /**
+   * Dispatches the given event to the handler for its class.
+   *
+   * @param event the event to dispatch
+   */
+  public void dispatch(Event event) {
+    EventHandler<Event> eventHandler = eventHandlers.get(event.getClass());
+    if (eventHandler == null) {
+      eventHandler = resolve(event.getClass());
+    }
+    eventHandler.handleEvent(event);
+  }
+
+  /**
+   * Registers the handler for the given event class (and any subclasses that do not have their own
+   * handler).
+   *
+   * @param <T> the event type
+   * @param eventClass the event class
+   * @param eventHandler the handler for the event class
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends Event> void register(Class<T> eventClass,
+      EventHandler<? super T> eventHandler) {
+    eventHandlers.put(eventClass, (EventHandler<Event>) eventHandler);
+  }
+
+  /**
+   * Returns the handler for the given event class by walking up the class hierarchy and caches the
+   * result for the event class.
+   *
+   * @param eventClass the event class
+   * @return the handler for the given event class
+   */
+  protected EventHandler<Event> resolve(Class<?> eventClass) {
+    EventHandler<Event> eventHandler = null;
+    for (Class<?> superclass = eventClass.getSuperclass();
+        superclass != null && eventHandler == null; superclass = superclass.getSuperclass()) {
+      eventHandler = eventHandlers.get(superclass);
+    }
+    if (eventHandler == null) {
+      eventHandler = defaultEventHandler;
+    }
+    eventHandlers.put(eventClass, eventHandler);
+    return eventHandler;
+  }
+
+  /**
+   * Sets the handler used for events that do not have a handler for their class.
+   *
+   * @param defaultEventHandler the handler used for events that do not have a handler for their
+   *     class
+   */
+  public void setDefaultEventHandler(EventHandler<Event> defaultEventHandler) {
+    this.defaultEventHandler = defaultEventHandler;
+  }
+
+  /**
+   * The EventHandler interface is implemented to handle the events of a single type.
+   *
+   * @param <T> the event type
+   */
+  public interface EventHandler<T extends Event> {
+
+    /**
+     * Handles the given event.
+     *
+     * @param event the event to handle
+     */
+    void handleEvent(T event);
+
+  }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx;
+
+import com.exit104.maurersmarbles.event.Event;
+
+/**
+ * The EventQueue class is a bounded, lock-free queue used to hand events from a single producer
+ * thread (the game logic thread) to a single consumer thread (the render thread). The events are
+ * stored in a ring buffer and the producer and consumer each only write their own index, so no
+ * locks or atomic read-modify-write operations are needed. Neither offer() nor poll() allocate.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class EventQueue {
+
+  /**
+   * The ring buffer that contains the events. The length is a power of two so an index can be
+   * wrapped with a mask.
+   */
+  protected final transient Event[] events;
+  /**
+   * The mask used to wrap an index into the ring buffer.
+   */
+  protected final transient int mask;
+  /**
+   * The number of events that have been polled (only written by the consumer).
+   */
+  protected transient volatile int head = 0;
+  /**
+   * The number of events that have been offered (only written by the producer).
+   */
+  protected transient volatile int tail = 0;
+
+  /**
+   * Creates a new EventQueue.
+   *
+   * @param capacity the maximum number of events in the queue (must be a power of two)
+   */
+  public EventQueue(int capacity) {
+    if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+      throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+    }
+    events = new Event[capacity];
+    mask = capacity - 1;
+  }
+
+  /**
+   * Returns the maximum number of events in the queue.
+   *
+   * @return the maximum number of events in the queue
+   */
+  public int getCapacity() {
+    return events.length;
+  }
+
+  /**
+   * Returns whether or not the queue is empty. This is only exact when called from the consumer
+   * thread.
+   *
+   * @return whether or not the queue is empty
+   */
+  public boolean isEmpty() {
+    return head == tail;
+  }
+
+  /**
+   * Adds the given event to the end of the queue. This must only be called from the producer
+   * thread.
+   *
+   * @param event the event to add
+   * @return whether or not the event was added (false if the queue is full)
+   */
+  public boolean offer(Event event) {
+    int currentTail = tail;
+    if (currentTail - head == events.length) {
+      return false;
+    }
+    events[currentTail & mask] = event;
+    // the volatile write publishes the event to the consumer
+    tail = currentTail + 1;
+    return true;
+  }
+
+  /**
+   * Removes and returns the event at the front of the queue. This must only be called from the
+   * consumer thread.
+   *
+   * @return the event at the front of the queue (or null if the queue is empty)
+   */
+  public Event poll() {
+    int currentHead = head;
+    if (currentHead == tail) {
+      return null;
+    }
+    int index = currentHead & mask;
+    Event event = events[index];
+    events[index] = null;
+    // the volatile write releases the slot back to the producer
+    head = currentHead + 1;
+    return event;
+  }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.g2d.DistanceFieldFont;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * The FontRegistry class loads the fonts shared by all of the screens. Each font is loaded once
+ * (the first time it is requested) and disposed with the registry, so the screens must not
+ * dispose the fonts. The fonts are distance field fonts (generated by the generateFonts task), so a
+ * single texture per font stays sharp at any scale when it is drawn with the distance field shader
+ * (see DistanceFieldLabel). The fonts are flipped to match the y-down stage camera.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class FontRegistry implements Disposable {
+
+  /**
+   * The file name of the regular font.
+   */
+  public static final String REGULAR = "fonts/dejavu-sans.fnt";
+  /**
+   * The file name of the bold font.
+   */
+  public static final String BOLD = "fonts/dejavu-sans-bold.fnt";
+  /**
+   * The size (in pixels) the fonts were generated at.
+   */
+  public static final float FONT_SIZE = 32.0f;
+  /**
+   * The distance (in pixels of the font texture) covered by the distance field on each side of a
+   * glyph edge (must match the generateFonts task).
+   */
+  public static final float DISTANCE_FIELD_SPREAD = 4.0f;
+  /**
+   * The map that contains the loaded fonts. The key into the map is the file name and the value is
+   * the font.
+   */
+  protected final transient ObjectMap<String, DistanceFieldFont> fonts = new ObjectMap<>();
+  /**
+   * The shader used to draw the distance field fonts (or null if it has not been created).
+   */
+  protected transient ShaderProgram distanceFieldShader;
+
+  /**
+   * Creates a new FontRegistry.
+   */
+  public FontRegistry() {
+    // do nothing
+  }
+
+  /**
+   * Returns the font with the given file name (loaded the first time it is requested).
+   *
+   * @param fileName the file name of the font (REGULAR or BOLD)
+   * @return the font with the given file name
+   */
+  public DistanceFieldFont getFont(String fileName) {
+    DistanceFieldFont font = fonts.get(fileName);
+    if (font == null) {
+      font = new DistanceFieldFont(Gdx.files.internal(fileName), true);
+      font.setDistanceFieldSmoothing(DISTANCE_FIELD_SPREAD);
+      fonts.put(fileName, font);
+    }
+    return font;
+  }
+
+  /**
+   * Returns the font scale for drawing text with the given height.
+   *
+   * @param textHeight the height (in world units) of the text
+   * @return the font scale for drawing text with the given height
+   */
+  public static float getFontScale(float textHeight) {
+    return textHeight / FONT_SIZE;
+  }
+
+  /**
+   * Returns the shader used to draw the distance field fonts (created the first time it is
+   * requested).
+   *
+   * @return the shader used to draw the distance field fonts
+   */
+  public ShaderProgram getDistanceFieldShader() {
+    if (distanceFieldShader == null) {
+      distanceFieldShader = DistanceFieldFont.createDistanceFieldShader();
+      if (!distanceFieldShader.isCompiled()) {
+        throw new GdxRuntimeException("Unable to compile the distance field shader: "
+            + distanceFieldShader.getLog());
+      }
+    }
+    return distanceFieldShader;
+  }
+
+  @Override
+  public void dispose() {
+    for (DistanceFieldFont font : fonts.values()) {
+      font.dispose();
+    }
+    fonts.clear();
+    if (distanceFieldShader != null) {
+      distanceFieldShader.dispose();
+      distanceFieldShader = null;
+    }
+  }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+
+import com.exit104.maurersmarbles.Game;
+import com.exit104.maurersmarbles.event.Event;
+import com.exit104.maurersmarbles.event.EventListener;
+
+/**
+ * The GameLogicExecutor class owns a game and advances it on a dedicated game logic thread so the
+ * play selectors (AI) never run inside a frame. The events fired by the game are handed to the
+ * render thread through a lock-free EventQueue and should be drained once per frame with
+ * pollEvent(). The game state must only be read by the render thread while the executor is idle
+ * (see isIdle()). On platforms without threads (GWT) the game is advanced synchronously.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class GameLogicExecutor implements EventListener, Disposable {
+
+  /**
+   * The maximum number of events that can be waiting to be drained by the render thread.
+   */
+  public static final int EVENT_QUEUE_CAPACITY = 1024;
+  /**
+   * The game.
+   */
+  protected final transient Game game;
+  /**
+   * The listener notified of each event on the game logic thread (or null). This is used for
+   * handlers that need to see the game state at the time of the event.
+   */
+  protected final transient EventListener logicThreadEventListener;
+  /**
+   * The queue used to hand the events to the render thread.
+   */
+  protected final transient EventQueue eventQueue = new EventQueue(EVENT_QUEUE_CAPACITY);
+  /**
+   * The executor that runs the game logic thread.
+   */
+  protected final transient AsyncExecutor asyncExecutor = new AsyncExecutor(1, "game-logic");
+  /**
+   * The result of the last advance task (or null if there is no advance task in progress).
+   */
+  protected transient AsyncResult<Void> advanceResult;
+  /**
+   * The listener notified before and after the game is advanced (or null).
+   */
+  protected transient AdvanceListener advanceListener;
+  /**
+   * The task used to advance the game on the game logic thread.
+   */
+  protected final transient AsyncTask<Void> advanceTask = new AsyncTask<Void>() {
+    @Override
+    public Void call() throws Exception {
+      if (advanceListener != null) {
+        advanceListener.beforeAdvance(game);
+      }
+      game.advance();
+      if (advanceListener != null) {
+        advanceListener.afterAdvance(game);
+      }
+      // wake up the render thread to drain the events (rendering is not continuous)
+      Gdx.graphics.requestRendering();
+      return null;
+    }
+  };
+
+  /**
+   * Creates a new GameLogicExecutor.
+   *
+   * @param game the game
+   * @param logicThreadEventListener the listener notified of each event on the game logic thread
+   *     (or null)
+   */
+  public GameLogicExecutor(Game game, EventListener logicThreadEventListener) {
+    this.game = game;
+    this.logicThreadEventListener = logicThreadEventListener;
+    game.addEventListener(this);
+  }
+
+  /**
+   * Returns the game.
+   *
+   * @return the game
+   */
+  public Game getGame() {
+    return game;
+  }
+
+  /**
+   * Sets the listener notified (on the game logic thread) before and after the game is advanced.
+   * This must be called before the game is first advanced.
+   *
+   * @param advanceListener the listener notified before and after the game is advanced (or null)
+   */
+  public void setAdvanceListener(AdvanceListener advanceListener) {
+    this.advanceListener = advanceListener;
+  }
+
+  /**
+   * Advances the game on the game logic thread. This must only be called from the render thread.
+   */
+  public void advance() {
+    if (!isIdle()) {
+      throw new IllegalStateException("The game is already being advanced");
+    }
+    advanceResult = asyncExecutor.submit(advanceTask);
+  }
+
+  /**
+   * Returns whether or not the game logic thread is idle (the game is not being advanced). Any
+   * exception thrown while advancing the game is rethrown (on the render thread) by this method.
+   *
+   * @return whether or not the game logic thread is idle
+   */
+  public boolean isIdle() {
+    if (advanceResult == null) {
+      return true;
+    }
+    if (!advanceResult.isDone()) {
+      return false;
+    }
+    AsyncResult<Void> result = advanceResult;
+    advanceResult = null;
+    result.get();
+    return true;
+  }
+
+  /**
+   * Blocks until the game logic thread is idle. This is intended for tools and benchmarks, the
+   * render thread should poll isIdle() instead.
+   */
+  public void awaitIdle() {
+    if (advanceResult != null) {
+      AsyncResult<Void> result = advanceResult;
+      advanceResult = null;
+      result.get();
+    }
+  }
+
+  /**
+   * Removes and returns the next event fired by the game. This must only be called from the render
+   * thread.
+   *
+   * @return the next event fired by the game (or null if there are no events)
+   */
+  public Event pollEvent() {
+    return eventQueue.poll();
+  }
+
+  @Override
+  public void handleEvent(Event event) {
+    if (logicThreadEventListener != null) {
+      logicThreadEventListener.handleEvent(event);
+    }
+    if (!eventQueue.offer(event)) {
+      throw new IllegalStateException("The event queue is full (" + eventQueue.getCapacity()
+          + " events)");
+    }
+  }
+
+  @Override
+  public void dispose() {
+    // waits for an advance task in progress to finish
+    asyncExecutor.dispose();
+  }
+
+  /**
+   * The AdvanceListener interface defines the methods called on the game logic thread before and
+   * after the game is advanced (for example to precompute the next AI decisions while the
+   * animations for the last advance are running).
+   */
+  public interface AdvanceListener {
+
+    /**
+     * Called on the game logic thread before the game is advanced.
+     *
+     * @param game the game
+     */
+    void beforeAdvance(Game game);
+
+    /**
+     * Called on the game logic thread after the game has been advanced.
+     *
+     * @param game the game
+     */
+    void afterAdvance(Game game);
+
+  }
+
+}
@@ -0,0 +1,414 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.DataOutput;
+
+import com.exit104.maurersmarbles.Card;
+import com.exit104.maurersmarbles.Game;
+import com.exit104.maurersmarbles.Play;
+import com.exit104.maurersmarbles.PlaySelector;
+import com.exit104.maurersmarbles.event.Event;
+import com.exit104.maurersmarbles.event.EventListener;
+import com.exit104.maurersmarbles.event.ExitedStateGameEvent;
+import com.exit104.maurersmarbles.event.ShuffledCardDeckGameEvent;
+import com.exit104.maurersmarbles.libgdx.ai.GameStateHash;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The GameRecorder class implements the EventListener interface to record the inputs of a game (the
+ * plays selected by the players and the order of the card deck after each shuffle) to a compact
+ * binary log that can be replayed with GameReplay. Everything else the game does follows from these
+ * inputs, so a replay runs the game logic again and feeds the recorded inputs back to it. The log
+ * starts with a header (the version, the presentation seed, the number of players and the order of
+ * the card deck when the recording started) followed by one record for each input, each made of
+ * variable length integers. Each exited state is also recorded with a hash of the game state, so a
+ * replay is checked against the recorded game after every state change.
+ *
+ * <p>The plays are recorded by the play selectors returned by createRecordedPlaySelector(), which
+ * record every answer the play selector gives the game (including the answers without a play while
+ * the user has not selected a play yet), so a replay asks for and is given the plays at the same
+ * points as the recorded game.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class GameRecorder implements EventListener {
+
+  /**
+   * The version of the log format (written first and checked when the log is replayed).
+   */
+  public static final int VERSION = 2;
+  /**
+   * The record type for a play selected by a player.
+   */
+  public static final int SELECTED_PLAY = 0;
+  /**
+   * The record type for a player that was asked for a play and has not selected one yet.
+   */
+  public static final int NO_PLAY = 1;
+  /**
+   * The record type for a shuffled card deck game event.
+   */
+  public static final int SHUFFLED_CARD_DECK = 2;
+  /**
+   * The record type for an exited state game event.
+   */
+  public static final int EXITED_STATE = 3;
+  /**
+   * The record type that ends the log (must be a single byte).
+   */
+  public static final int END = 4;
+  /**
+   * The game being recorded.
+   */
+  protected final transient Game game;
+  /**
+   * The seed for the presentation randomness of the recorded game.
+   */
+  protected final transient long seed;
+  /**
+   * The stream the log is written to.
+   */
+  protected final transient RecordStream recordStream = new RecordStream();
+  /**
+   * The output used to write the variable length integers to the stream.
+   */
+  protected final transient DataOutput output = new DataOutput(recordStream);
+  /**
+   * The array of plays a player was asked to select from when the recording was continued from a
+   * replay and the player had not selected a play yet. The index into the array is the player
+   * number and the value is the available plays (or null).
+   */
+  protected final transient Array<Set<Play>> pendingPlays;
+  /**
+   * The number of records that have been written.
+   */
+  protected transient int recordNumber = 0;
+  /**
+   * The number of exited state records that have been written.
+   */
+  protected transient int stepNumber = 0;
+
+  /**
+   * Creates a new GameRecorder and starts recording the given game. The game must not have been
+   * advanced yet.
+   *
+   * @param game the game to record
+   * @param seed the seed for the presentation randomness of the game
+   */
+  public GameRecorder(Game game, long seed) {
+    this.game = game;
+    this.seed = seed;
+    pendingPlays = new Array<>(game.getNumberOfPlayers());
+    pendingPlays.setSize(game.getNumberOfPlayers());
+    try {
+      output.writeInt(VERSION, true);
+      output.writeLong(seed);
+      output.writeInt(game.getNumberOfPlayers(), true);
+      writeCards(game.getCardDeck().getUndealtCards(), output);
+    } catch (IOException ex) {
+      // writing to a byte array does not throw
+      throw new IllegalStateException(ex);
+    }
+    game.addEventListener(this);
+  }
+
+  /**
+   * Creates a new GameRecorder that continues the recording replayed by the given replay (for
+   * example a game restored from a snapshot). The replay must have finished.
+   *
+   * @param gameReplay the replay of the recording to continue
+   */
+  public GameRecorder(GameReplay gameReplay) {
+    if (!gameReplay.isFinished()) {
+      throw new IllegalArgumentException("The replay has not finished");
+    }
+    game = gameReplay.getGame();
+    seed = gameReplay.getSeed();
+    pendingPlays = new Array<>(game.getNumberOfPlayers());
+    for (int playerNumber = 0; playerNumber < game.getNumberOfPlayers(); playerNumber++) {
+      pendingPlays.add(gameReplay.getPendingPlays(playerNumber));
+    }
+    gameReplay.writeRecords(recordStream);
+    recordNumber = gameReplay.getRecordNumber();
+    stepNumber = gameReplay.getStepNumber();
+    game.addEventListener(this);
+  }
+
+  /**
+   * Returns the seed for the presentation randomness of the recorded game.
+   *
+   * @return the seed for the presentation randomness of the recorded game
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Returns the number of exited state records that have been written.
+   *
+   * @return the number of exited state records that have been written
+   */
+  public int getStepNumber() {
+    return stepNumber;
+  }
+
+  /**
+   * Returns a play selector that records the plays selected by the given play selector. The play
+   * selector of each player in the recorded game must be wrapped (before the game is advanced).
+   *
+   * @param playerNumber the player number of the player
+   * @param playSelector the play selector that selects the plays
+   * @return a play selector that records the plays selected by the given play selector
+   */
+  public PlaySelector createRecordedPlaySelector(int playerNumber, PlaySelector playSelector) {
+    RecordedPlaySelector recordedPlaySelector = new RecordedPlaySelector(playerNumber,
+        playSelector);
+    // the game is still waiting for the player to select a play (the answer without a play has
+    // already been recorded)
+    Set<Play> plays = pendingPlays.get(playerNumber);
+    if (plays != null) {
+      playSelector.setAvailablePlays(plays);
+      recordedPlaySelector.plays = plays;
+      recordedPlaySelector.waiting = true;
+      pendingPlays.set(playerNumber, null);
+    }
+    return recordedPlaySelector;
+  }
+
+  /**
+   * Returns the length (in bytes) of the log recorded so far. This may be called from any thread.
+   *
+   * @return the length (in bytes) of the log recorded so far
+   */
+  public int getLength() {
+    return recordStream.size();
+  }
+
+  /**
+   * Returns the first given number of bytes of the log (ended with an END record). Recording
+   * continues after this is called. The length should be a length returned by getLength() while the
+   * game was not being advanced, so the log ends between two advances of the game. This may be
+   * called from any thread.
+   *
+   * @param length the number of bytes of the log to return
+   * @return the first given number of bytes of the log (ended with an END record)
+   */
+  public byte[] toBytes(int length) {
+    byte[] bytes = new byte[length + 1];
+    recordStream.copyTo(bytes, length);
+    bytes[length] = (byte) END;
+    return bytes;
+  }
+
+  @Override
+  public void handleEvent(Event event) {
+
+    try {
+
+      if (event instanceof ShuffledCardDeckGameEvent) {
+
+        // the shuffle is not repeatable, so the new order of the card deck is recorded
+        output.writeInt(SHUFFLED_CARD_DECK, true);
+        writeCards(game.getCardDeck().getUndealtCards(), output);
+
+      } else if (event instanceof ExitedStateGameEvent) {
+
+        output.writeInt(EXITED_STATE, true);
+        output.writeInt(((ExitedStateGameEvent) event).getState().ordinal(), true);
+        output.writeLong(GameStateHash.hash(game, 0));
+        stepNumber++;
+
+      } else {
+        // any other event follows from the recorded inputs
+        return;
+      }
+
+      recordNumber++;
+
+    } catch (IOException ex) {
+      // writing to a byte array does not throw
+      throw new IllegalStateException(ex);
+    }
+
+  }
+
+  /**
+   * Writes a record for an answer of a play selector.
+   *
+   * @param playerNumber the player number of the player
+   * @param plays the available plays
+   * @param play the play selected by the player (or null if the player has not selected a play)
+   */
+  protected void writePlay(int playerNumber, Set<Play> plays, Play play) {
+    try {
+      if (play == null) {
+        output.writeInt(NO_PLAY, true);
+        output.writeInt(playerNumber, true);
+      } else {
+        output.writeInt(SELECTED_PLAY, true);
+        output.writeInt(playerNumber, true);
+        output.writeInt(getPlayIndex(plays, play), true);
+      }
+    } catch (IOException ex) {
+      // writing to a byte array does not throw
+      throw new IllegalStateException(ex);
+    }
+    recordNumber++;
+  }
+
+  /**
+   * Returns the key used to match a recorded play to the same play in a replayed game.
+   *
+   * @param play the play
+   * @return the key used to match a recorded play to the same play in a replayed game
+   */
+  public static String getPlayKey(Play play) {
+    return play.toString();
+  }
+
+  /**
+   * Returns the index of the given play in the given plays ordered by their keys (see
+   * getPlayKey()). The index does not depend on the iteration order of the set, so a play is
+   * recorded as a small number that is matched to the same play in a replayed game.
+   *
+   * @param plays the available plays
+   * @param play the play
+   * @return the index of the given play in the given plays ordered by their keys
+   */
+  public static int getPlayIndex(Set<Play> plays, Play play) {
+    String playKey = getPlayKey(play);
+    int playIndex = 0;
+    for (Play availablePlay : plays) {
+      if (getPlayKey(availablePlay).compareTo(playKey) < 0) {
+        playIndex++;
+      }
+    }
+    return playIndex;
+  }
+
+  /**
+   * Writes the given cards (the number of cards followed by the index of each card).
+   *
+   * @param cards the cards
+   * @param output the output the cards are written to
+   * @throws IOException if the cards cannot be written
+   */
+  protected static void writeCards(List<Card> cards, DataOutput output) throws IOException {
+    output.writeInt(cards.size(), true);
+    for (int i = 0; i < cards.size(); i++) {
+      output.writeInt(CardTable.getIndex(cards.get(i)), true);
+    }
+  }
+
+  /**
+   * The RecordStream class extends the ByteArrayOutputStream class to copy the start of the log
+   * without copying the whole buffer first (the log is written on the game logic thread and copied
+   * on the render thread, which is safe since both are synchronized on the stream).
+   */
+  protected static class RecordStream extends ByteArrayOutputStream {
+
+    /**
+     * Creates a new RecordStream.
+     */
+    protected RecordStream() {
+      super(4096);
+    }
+
+    /**
+     * Copies the first given number of bytes of the stream to the given array.
+     *
+     * @param bytes the array the bytes are copied to
+     * @param length the number of bytes to copy
+     */
+    protected synchronized void copyTo(byte[] bytes, int length) {
+      if (length > count) {
+        throw new IllegalArgumentException("The log only has " + count + " bytes");
+      }
+      System.arraycopy(buf, 0, bytes, 0, length);
+    }
+
+  }
+
+  /**
+   * The RecordedPlaySelector class extends the PlaySelector class to record every answer another
+   * play selector gives the game. A play selector that does not select a play when the plays
+   * become available (the user) is waiting, and each answer it gives until it selects a play is
+   * recorded as well.
+   */
+  public class RecordedPlaySelector extends PlaySelector {
+
+    /**
+     * The player number of the player.
+     */
+    protected final transient int playerNumber;
+    /**
+     * The play selector that selects the plays.
+     */
+    protected final transient PlaySelector playSelector;
+    /**
+     * The plays that were last made available.
+     */
+    protected transient Set<Play> plays;
+    /**
+     * Whether or not the play selector was asked for a play and has not selected one yet.
+     */
+    protected transient boolean waiting = false;
+
+    /**
+     * Creates a new RecordedPlaySelector.
+     *
+     * @param playerNumber the player number of the player
+     * @param playSelector the play selector that selects the plays
+     */
+    protected RecordedPlaySelector(int playerNumber, PlaySelector playSelector) {
+      this.playerNumber = playerNumber;
+      this.playSelector = playSelector;
+    }
+
+    /**
+     * Returns the play selector that selects the plays.
+     *
+     * @return the play selector that selects the plays
+     */
+    public PlaySelector getPlaySelector() {
+      return playSelector;
+    }
+
+    @Override
+    public void setAvailablePlays(Set<Play> plays) {
+      super.setAvailablePlays(plays);
+      this.plays = plays;
+      playSelector.setAvailablePlays(plays);
+      Play play = playSelector.getSelectedPlay();
+      writePlay(playerNumber, plays, play);
+      waiting = play == null;
+    }
+
+    @Override
+    public Play getSelectedPlay() {
+      Play play = playSelector.getSelectedPlay();
+      if (waiting) {
+        writePlay(playerNumber, plays, play);
+        waiting = play == null;
+      }
+      return play;
+    }
+
+    @Override
+    public void setSelectedPlay(Play play) {
+      playSelector.setSelectedPlay(play);
+    }
+
+  }
+
+}
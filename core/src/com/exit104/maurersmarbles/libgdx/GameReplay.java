@@ -0,0 +1,624 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.DataInput;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectMap;
+
+import com.exit104.maurersmarbles.Card;
+import com.exit104.maurersmarbles.Game;
+import com.exit104.maurersmarbles.Play;
+import com.exit104.maurersmarbles.PlaySelector;
+import com.exit104.maurersmarbles.event.Event;
+import com.exit104.maurersmarbles.event.EventListener;
+import com.exit104.maurersmarbles.event.ExitedStateGameEvent;
+import com.exit104.maurersmarbles.event.ShuffledCardDeckGameEvent;
+import com.exit104.maurersmarbles.libgdx.ai.GameStateHash;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The GameReplay class replays a log written by GameRecorder. A new game is created with the card
+ * deck in the recorded order and each player is given a play selector that feeds the recorded
+ * plays back to the game, so advancing the replay runs the game logic and the game fires its own
+ * events. The recorded order of the card deck is restored after each shuffle. The replay is checked
+ * against the recorded game: a recorded play that is not available, an input the game asks for at
+ * a different point than in the recorded game or a game state hash that does not match means the
+ * replay diverged from the recorded game.
+ *
+ * <p>The game can only be advanced, so a replay seeks to a step through keyframes: copies of the
+ * game (see Game(Game)) taken between two advances every given number of steps while the log is
+ * replayed. createAt() starts a new replay from the nearest keyframe at or before a step and only
+ * advances the remaining steps. The keyframes are kept in memory and shared by all of the replays
+ * created from the same replay. The pinned game library has no way to set the state of a game, so
+ * the keyframes cannot be written to the log and read back.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class GameReplay implements EventListener {
+
+  /**
+   * The default number of steps between two keyframes.
+   */
+  public static final int DEFAULT_KEYFRAME_INTERVAL = 32;
+  /**
+   * The log written by GameRecorder.
+   */
+  protected final transient byte[] bytes;
+  /**
+   * The stream the log is read from.
+   */
+  protected final transient ByteArrayInputStream byteArrayInputStream;
+  /**
+   * The input the records are read from.
+   */
+  protected final transient DataInput input;
+  /**
+   * The seed for the presentation randomness of the recorded game.
+   */
+  protected final transient long seed;
+  /**
+   * The game the recorded inputs are fed to.
+   */
+  protected final transient Game game;
+  /**
+   * The array of play selectors that feed the recorded plays to the game. The index into the array
+   * is the player number and the value is the play selector for that player.
+   */
+  protected final transient ReplayPlaySelector[] replayPlaySelectors;
+  /**
+   * The table reused for the cards of the card deck when the recorded order is restored.
+   */
+  protected final transient CardTable<Card> undealtCards = new CardTable<>();
+  /**
+   * The keys of the available plays (reused for each recorded play).
+   */
+  protected final transient Array<String> playKeys = new Array<>(String.class);
+  /**
+   * The map of the available plays (reused for each recorded play). The key into the map is the
+   * key of the play and the value is the play.
+   */
+  protected final transient ObjectMap<String, Play> playsByKey = new ObjectMap<>();
+  /**
+   * The type of the next record.
+   */
+  protected transient int nextRecordType;
+  /**
+   * The offset of the next record.
+   */
+  protected transient int nextRecordOffset;
+  /**
+   * The number of records that have been replayed.
+   */
+  protected transient int recordNumber = 0;
+  /**
+   * The number of exited state records that have been replayed.
+   */
+  protected transient int stepNumber = 0;
+  /**
+   * The number of steps between two keyframes (or 0 if no keyframes are taken).
+   */
+  protected final transient int keyframeInterval;
+  /**
+   * The keyframes taken so far, in step order (shared by all of the replays created from the same
+   * replay).
+   */
+  protected final transient Array<Keyframe> keyframes;
+
+  /**
+   * Creates a new GameReplay that takes a keyframe every DEFAULT_KEYFRAME_INTERVAL steps.
+   *
+   * @param bytes the log written by GameRecorder
+   * @throws IOException if the header of the log is not valid
+   */
+  public GameReplay(byte[] bytes) throws IOException {
+    this(bytes, DEFAULT_KEYFRAME_INTERVAL);
+  }
+
+  /**
+   * Creates a new GameReplay.
+   *
+   * @param bytes the log written by GameRecorder
+   * @param keyframeInterval the number of steps between two keyframes (or 0 to take no keyframes)
+   * @throws IOException if the header of the log is not valid
+   */
+  public GameReplay(byte[] bytes, int keyframeInterval) throws IOException {
+
+    if (keyframeInterval < 0) {
+      throw new IllegalArgumentException("Invalid keyframe interval: " + keyframeInterval);
+    }
+
+    this.bytes = bytes;
+    this.keyframeInterval = keyframeInterval;
+    keyframes = new Array<>(Keyframe.class);
+    byteArrayInputStream = new ByteArrayInputStream(bytes);
+    input = new DataInput(byteArrayInputStream);
+    int version = input.readInt(true);
+    if (version != GameRecorder.VERSION) {
+      throw new IOException("Unsupported replay version: " + version);
+    }
+    seed = input.readLong();
+    int numberOfPlayers = input.readInt(true);
+    try {
+      game = new Game(numberOfPlayers);
+    } catch (IllegalArgumentException ex) {
+      throw new IOException("Invalid number of players: " + numberOfPlayers, ex);
+    }
+    readCardDeck();
+
+    replayPlaySelectors = createReplayPlaySelectors();
+    readRecordType();
+
+    // the first keyframe is the start of the recording
+    if (keyframeInterval > 0) {
+      keyframes.add(new Keyframe(this));
+    }
+
+  }
+
+  /**
+   * Creates a new GameReplay that starts at the given keyframe of the given replay and shares its
+   * keyframes.
+   *
+   * @param gameReplay the replay the keyframe was taken from
+   * @param keyframe the keyframe to start at
+   * @throws IOException if the next record cannot be read
+   */
+  protected GameReplay(GameReplay gameReplay, Keyframe keyframe) throws IOException {
+
+    bytes = gameReplay.bytes;
+    keyframeInterval = gameReplay.keyframeInterval;
+    keyframes = gameReplay.keyframes;
+    byteArrayInputStream = new ByteArrayInputStream(bytes, keyframe.offset,
+        bytes.length - keyframe.offset);
+    input = new DataInput(byteArrayInputStream);
+    seed = gameReplay.seed;
+    // the keyframe is copied, so it can be started at again
+    game = new Game(keyframe.game);
+    recordNumber = keyframe.recordNumber;
+    stepNumber = keyframe.stepNumber;
+
+    replayPlaySelectors = createReplayPlaySelectors();
+    readRecordType();
+
+  }
+
+  /**
+   * Creates the play selectors that feed the recorded plays to the game and listens to the game.
+   *
+   * @return the array of play selectors that feed the recorded plays to the game
+   */
+  protected ReplayPlaySelector[] createReplayPlaySelectors() {
+    ReplayPlaySelector[] playSelectors = new ReplayPlaySelector[game.getNumberOfPlayers()];
+    for (int playerNumber = 0; playerNumber < playSelectors.length; playerNumber++) {
+      playSelectors[playerNumber] = new ReplayPlaySelector(playerNumber);
+      game.getPlayers().get(playerNumber).setPlaySelector(playSelectors[playerNumber]);
+    }
+    // this is added before any other listener, so the card deck is in the recorded order before
+    // the other listeners see a shuffle
+    game.addEventListener(this);
+    return playSelectors;
+  }
+
+  /**
+   * Returns a new replay of the same log that is at the given step (or at the end of the log if the
+   * log has fewer steps). The new replay starts at the nearest keyframe at or before the step and
+   * only advances the remaining steps, taking keyframes as it goes, so the time this takes does not
+   * depend on how far into the game the step is once the keyframes have been taken (see
+   * buildKeyframes()). This replay is not changed.
+   *
+   * @param stepNumber the step the new replay is at
+   * @return a new replay of the same log that is at the given step
+   * @throws IOException if a record is not valid or the replay diverged from the recorded game
+   */
+  public GameReplay createAt(int stepNumber) throws IOException {
+
+    if (keyframes.size == 0) {
+      throw new IllegalStateException("The replay does not take keyframes");
+    }
+
+    // find the last keyframe at or before the step
+    int low = 0;
+    int high = keyframes.size - 1;
+    while (low < high) {
+      int middle = (low + high + 1) >>> 1;
+      if (keyframes.get(middle).stepNumber <= stepNumber) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+
+    GameReplay gameReplay = new GameReplay(this, keyframes.get(low));
+    while (gameReplay.stepNumber < stepNumber && !gameReplay.isFinished()) {
+      gameReplay.advance();
+    }
+    return gameReplay;
+
+  }
+
+  /**
+   * Takes the keyframes for the whole log (from the last keyframe taken so far to the end of the
+   * log) without changing this replay, so each step can then be reached with createAt() in at most
+   * the keyframe interval.
+   *
+   * @throws IOException if a record is not valid or the replay diverged from the recorded game
+   */
+  public void buildKeyframes() throws IOException {
+    if (keyframes.size > 0) {
+      createAt(Integer.MAX_VALUE);
+    }
+  }
+
+  /**
+   * Returns the game the recorded inputs are fed to.
+   *
+   * @return the game the recorded inputs are fed to
+   */
+  public Game getGame() {
+    return game;
+  }
+
+  /**
+   * Returns the seed for the presentation randomness of the recorded game.
+   *
+   * @return the seed for the presentation randomness of the recorded game
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Returns the number of records that have been replayed.
+   *
+   * @return the number of records that have been replayed
+   */
+  public int getRecordNumber() {
+    return recordNumber;
+  }
+
+  /**
+   * Returns the number of exited state records that have been replayed (the step the replay is
+   * at).
+   *
+   * @return the number of exited state records that have been replayed
+   */
+  public int getStepNumber() {
+    return stepNumber;
+  }
+
+  /**
+   * Returns whether or not all of the records have been replayed.
+   *
+   * @return whether or not all of the records have been replayed
+   */
+  public boolean isFinished() {
+    return nextRecordType == GameRecorder.END;
+  }
+
+  /**
+   * Returns the plays the given player was asked to select from and has not selected a play from
+   * yet (the game is waiting for the player).
+   *
+   * @param playerNumber the player number of the player
+   * @return the plays the given player was asked to select from (or null if the game is not
+   *     waiting for the player)
+   */
+  public Set<Play> getPendingPlays(int playerNumber) {
+    ReplayPlaySelector replayPlaySelector = replayPlaySelectors[playerNumber];
+    return replayPlaySelector.waiting ? replayPlaySelector.plays : null;
+  }
+
+  /**
+   * Returns whether or not the game is waiting for a player to select a play.
+   *
+   * @return whether or not the game is waiting for a player to select a play
+   */
+  protected boolean isWaiting() {
+    for (int playerNumber = 0; playerNumber < replayPlaySelectors.length; playerNumber++) {
+      if (replayPlaySelectors[playerNumber].waiting) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Writes the records that have been replayed (the log up to the END record) to the given stream.
+   * The replay must have finished.
+   *
+   * @param outputStream the stream the records are written to
+   */
+  public void writeRecords(OutputStream outputStream) {
+    if (!isFinished()) {
+      throw new IllegalStateException("The replay has not finished");
+    }
+    try {
+      outputStream.write(bytes, 0, nextRecordOffset);
+    } catch (IOException ex) {
+      throw new GdxRuntimeException(ex);
+    }
+  }
+
+  /**
+   * Advances the game once (as the recorded game was advanced) with the recorded inputs. Does
+   * nothing once the replay has finished.
+   *
+   * @throws IOException if a record is not valid or the replay diverged from the recorded game
+   */
+  public void advance() throws IOException {
+
+    if (isFinished()) {
+      return;
+    }
+
+    int startRecordNumber = recordNumber;
+    try {
+      game.advance();
+    } catch (GdxRuntimeException ex) {
+      // the play selectors and the listener cannot throw checked exceptions
+      if (ex.getCause() instanceof IOException) {
+        throw (IOException) ex.getCause();
+      }
+      throw ex;
+    }
+    if (recordNumber == startRecordNumber) {
+      throw diverged("The game was advanced without using any of the recorded inputs");
+    }
+
+    // only the replay that is past the last keyframe takes the next one, and not while a player is
+    // waiting (the state of the play selectors is not part of the game)
+    if (keyframeInterval > 0 && !isFinished()
+        && stepNumber >= keyframes.peek().stepNumber + keyframeInterval && !isWaiting()) {
+      keyframes.add(new Keyframe(this));
+    }
+
+  }
+
+  @Override
+  public void handleEvent(Event event) {
+
+    // a finished replay ignores the events of a game that is continued from it (a restored game
+    // is recorded by a new GameRecorder)
+    if (isFinished()) {
+      return;
+    }
+
+    try {
+
+      if (event instanceof ShuffledCardDeckGameEvent) {
+
+        expectRecordType(GameRecorder.SHUFFLED_CARD_DECK);
+        readCardDeck();
+        readRecordType();
+
+      } else if (event instanceof ExitedStateGameEvent) {
+
+        expectRecordType(GameRecorder.EXITED_STATE);
+        if (input.readInt(true) != ((ExitedStateGameEvent) event).getState().ordinal()) {
+          throw diverged("The game exited a different state than the recorded game");
+        }
+        if (input.readLong() != GameStateHash.hash(game, 0)) {
+          throw diverged("The game state does not match the recorded game state");
+        }
+        stepNumber++;
+        readRecordType();
+
+      }
+
+    } catch (IOException ex) {
+      throw new GdxRuntimeException(ex);
+    }
+
+  }
+
+  /**
+   * Reads the type of the next record.
+   *
+   * @throws IOException if the type cannot be read
+   */
+  protected void readRecordType() throws IOException {
+    nextRecordOffset = bytes.length - byteArrayInputStream.available();
+    nextRecordType = input.readInt(true);
+  }
+
+  /**
+   * Counts the next record as replayed and checks that it is of the given type.
+   *
+   * @param recordType the type of record the game needs
+   * @throws IOException if the next record is of a different type
+   */
+  protected void expectRecordType(int recordType) throws IOException {
+    recordNumber++;
+    if (nextRecordType != recordType) {
+      throw diverged("Expected record type " + recordType + " but found " + nextRecordType);
+    }
+  }
+
+  /**
+   * Reads a recorded order of the card deck and puts the cards of the card deck in that order.
+   *
+   * @throws IOException if the recorded order is not an order of the cards in the card deck
+   */
+  protected void readCardDeck() throws IOException {
+
+    List<Card> cards = game.getCardDeck().getUndealtCards();
+    undealtCards.clear();
+    for (int i = 0; i < cards.size(); i++) {
+      undealtCards.put(cards.get(i), cards.get(i));
+    }
+
+    int numberOfCards = input.readInt(true);
+    if (numberOfCards != cards.size()) {
+      throw diverged("The card deck has " + cards.size() + " cards instead of " + numberOfCards);
+    }
+    for (int i = 0; i < numberOfCards; i++) {
+      int index = input.readInt(true);
+      Card card = index < CardTable.SIZE ? undealtCards.get(index) : null;
+      if (card == null) {
+        throw diverged("The card deck does not contain card " + index);
+      }
+      undealtCards.put(card, null);
+      cards.set(i, card);
+    }
+
+  }
+
+  /**
+   * Reads the next record, which must be an answer of the given player, and returns the play.
+   *
+   * @param playerNumber the player number of the player the game asked for a play
+   * @param plays the available plays
+   * @return the recorded play (or null if the player had not selected a play)
+   */
+  protected Play readPlay(int playerNumber, Set<Play> plays) {
+
+    try {
+
+      recordNumber++;
+      if (nextRecordType != GameRecorder.SELECTED_PLAY && nextRecordType != GameRecorder.NO_PLAY) {
+        throw diverged("The game asked player " + playerNumber + " for a play at record type "
+            + nextRecordType);
+      }
+      int recordedPlayerNumber = input.readInt(true);
+      if (recordedPlayerNumber != playerNumber) {
+        throw diverged("The game asked player " + playerNumber + " for a play instead of player "
+            + recordedPlayerNumber);
+      }
+
+      Play play = null;
+      if (nextRecordType == GameRecorder.SELECTED_PLAY) {
+        // the play is recorded as its index in the plays ordered by their keys
+        int playIndex = input.readInt(true);
+        if (playIndex >= plays.size()) {
+          throw diverged("The recorded play " + playIndex + " is not one of the " + plays.size()
+              + " available plays");
+        }
+        playKeys.clear();
+        playsByKey.clear();
+        for (Play availablePlay : plays) {
+          String playKey = GameRecorder.getPlayKey(availablePlay);
+          playKeys.add(playKey);
+          playsByKey.put(playKey, availablePlay);
+        }
+        playKeys.sort();
+        play = playsByKey.get(playKeys.get(playIndex));
+      }
+
+      readRecordType();
+      return play;
+
+    } catch (IOException ex) {
+      throw new GdxRuntimeException(ex);
+    }
+
+  }
+
+  /**
+   * Returns an exception for a replay that diverged from the recorded game at the current record.
+   *
+   * @param message the reason the replay diverged
+   * @return an exception for a replay that diverged from the recorded game
+   */
+  protected IOException diverged(String message) {
+    return new IOException("The replay diverged at record " + recordNumber + ": " + message);
+  }
+
+  /**
+   * The Keyframe class holds a copy of a replayed game taken between two advances and where the
+   * replay was in the log at that point.
+   */
+  protected static class Keyframe {
+
+    /**
+     * The copy of the game (never advanced).
+     */
+    protected final transient Game game;
+    /**
+     * The offset of the next record.
+     */
+    protected final transient int offset;
+    /**
+     * The number of records that had been replayed.
+     */
+    protected final transient int recordNumber;
+    /**
+     * The number of exited state records that had been replayed.
+     */
+    protected final transient int stepNumber;
+
+    /**
+     * Creates a new Keyframe of the current step of the given replay.
+     *
+     * @param gameReplay the replay
+     */
+    protected Keyframe(GameReplay gameReplay) {
+      game = new Game(gameReplay.game);
+      offset = gameReplay.nextRecordOffset;
+      recordNumber = gameReplay.recordNumber;
+      stepNumber = gameReplay.stepNumber;
+    }
+
+  }
+
+  /**
+   * The ReplayPlaySelector class extends the PlaySelector class to give the game the recorded
+   * answers of a player. Each answer the game asks for is read from the next record, including the
+   * answers without a play while the recorded player had not selected a play yet.
+   */
+  protected class ReplayPlaySelector extends PlaySelector {
+
+    /**
+     * The player number of the player.
+     */
+    protected final transient int playerNumber;
+    /**
+     * The plays that were last made available.
+     */
+    protected transient Set<Play> plays;
+    /**
+     * Whether or not the player was asked for a play and has not selected one yet.
+     */
+    protected transient boolean waiting = false;
+
+    /**
+     * Creates a new ReplayPlaySelector.
+     *
+     * @param playerNumber the player number of the player
+     */
+    protected ReplayPlaySelector(int playerNumber) {
+      this.playerNumber = playerNumber;
+    }
+
+    @Override
+    public void setAvailablePlays(Set<Play> plays) {
+      super.setAvailablePlays(plays);
+      this.plays = plays;
+      Play play = readPlay(playerNumber, plays);
+      setSelectedPlay(play);
+      waiting = play == null;
+    }
+
+    @Override
+    public Play getSelectedPlay() {
+      if (waiting) {
+        Play play = readPlay(playerNumber, plays);
+        setSelectedPlay(play);
+        waiting = play == null;
+      }
+      return super.getSelectedPlay();
+    }
+
+  }
+
+}
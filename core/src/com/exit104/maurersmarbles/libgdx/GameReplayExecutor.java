@@ -0,0 +1,67 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import com.exit104.maurersmarbles.event.EventListener;
+
+import java.io.IOException;
+
+/**
+ * The GameReplayExecutor class extends the GameLogicExecutor class to advance a game with the
+ * inputs of a recorded log. The play selectors of a replay only read the recorded plays (there is
+ * no AI search), so an advance is done synchronously on the render thread and the executor is
+ * always idle. The events fired by the replayed game are handed to the render thread through the
+ * same queue as the events of a live game, so the screen cannot tell a replay from a live game.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class GameReplayExecutor extends GameLogicExecutor {
+
+  /**
+   * The replay used to advance the game.
+   */
+  protected final transient GameReplay gameReplay;
+
+  /**
+   * Creates a new GameReplayExecutor.
+   *
+   * @param gameReplay the replay used to advance the game
+   * @param logicThreadEventListener the listener notified of each event before it is queued (or
+   *     null)
+   */
+  public GameReplayExecutor(GameReplay gameReplay, EventListener logicThreadEventListener) {
+    super(gameReplay.getGame(), logicThreadEventListener);
+    this.gameReplay = gameReplay;
+  }
+
+  /**
+   * Returns the replay used to advance the game.
+   *
+   * @return the replay used to advance the game
+   */
+  public GameReplay getGameReplay() {
+    return gameReplay;
+  }
+
+  /**
+   * Advances the game once with the recorded inputs (does nothing once the replay has finished).
+   * This must only be called from the render thread.
+   */
+  @Override
+  public void advance() {
+    try {
+      gameReplay.advance();
+    } catch (IOException ex) {
+      throw new GdxRuntimeException(ex);
+    }
+    Gdx.graphics.requestRendering();
+  }
+
+}
@@ -0,0 +1,332 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.IntSet;
+
+import com.exit104.maurersmarbles.Card;
+import com.exit104.maurersmarbles.Game;
+import com.exit104.maurersmarbles.InvalidPlayException;
+import com.exit104.maurersmarbles.Marble;
+import com.exit104.maurersmarbles.Play;
+import com.exit104.maurersmarbles.Player;
+import com.exit104.maurersmarbles.UserPlay;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The LegalPlayIndex class maps the user input (card, first marble, second marble and split value)
+ * to the legal play for that input. The index is built once when the plays become available (on
+ * the game logic thread) by validating the possible inputs, so resolving a click is a single
+ * lookup that never throws. The index also records the partial inputs (card, card and split value,
+ * card and first marble) that lead to at least one legal play, which is used to highlight the
+ * marbles and split cards that can still be selected.
+ *
+ * <p>The library does not expose the card, marbles and split value of a Play, so the index cannot
+ * be keyed from the available plays directly and the inputs are validated instead. The number of
+ * validated inputs is kept down by only trying the player's own marbles as the first marble (see
+ * build()) and by only validating the inputs that were legal for an earlier card of the same rank
+ * when the hand holds more than one card of a rank.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class LegalPlayIndex {
+
+  /**
+   * The value used for no split value in the keys.
+   */
+  protected static final int NO_SPLIT = 0;
+  /**
+   * The number of split values in the keys (no split value and 1 to 7).
+   */
+  protected static final int NUMBER_OF_SPLIT_VALUES = 8;
+  /**
+   * The split value used when the whole seven is played on a single marble.
+   */
+  public static final int FULL_SPLIT_VALUE = 7;
+  /**
+   * The map that contains the legal plays. The key into the map is the key for the complete input
+   * (see getKey()) and the value is the legal play for that input.
+   */
+  protected final transient IntMap<Play> legalPlays = new IntMap<>();
+  /**
+   * The set of keys for the partial inputs that lead to at least one legal play.
+   */
+  protected final transient IntSet legalPrefixes = new IntSet();
+  /**
+   * The number of marble values in the keys (no marble and one for each marble in the game).
+   */
+  protected transient int numberOfMarbleValues = 1;
+  /**
+   * The keys of the legal inputs for an earlier card of the same rank (reused for each card).
+   */
+  protected final transient IntArray sameRankKeys = new IntArray();
+
+  /**
+   * Creates a new LegalPlayIndex.
+   */
+  public LegalPlayIndex() {
+    // do nothing
+  }
+
+  /**
+   * Rebuilds the index for the given player by validating the possible inputs for the cards in
+   * their hand. The first marble is one of the player's own marbles unless none of those has a
+   * legal play (all of their marbles are home, so they move the marbles of their partner). A jack
+   * that swaps one of the player's marbles with another marble is also indexed with the other
+   * marble first, so the marbles can be selected in either order. This should be called when the
+   * plays become available (not on the render thread).
+   *
+   * @param game the game
+   * @param playerNumber the player number of the player
+   * @param plays the available plays
+   */
+  public void build(Game game, int playerNumber, Set<Play> plays) {
+
+    clear();
+    numberOfMarbleValues = game.getNumberOfPlayers() * Game.NUMBER_OF_MARBLES_PER_PLAYER + 1;
+    if (plays.isEmpty()) {
+      return;
+    }
+
+    add(game, playerNumber, playerNumber);
+    if (legalPlays.size == 0) {
+      for (int playerNumber1 = 0; playerNumber1 < game.getNumberOfPlayers(); playerNumber1++) {
+        if (playerNumber1 != playerNumber) {
+          add(game, playerNumber, playerNumber1);
+        }
+      }
+    }
+
+  }
+
+  /**
+   * Validates the possible inputs that move one of the marbles of the given player first and adds
+   * the legal inputs to the index.
+   *
+   * @param game the game
+   * @param playerNumber the player number of the player making the play
+   * @param playerNumber1 the player number of the player that owns the first marble
+   */
+  protected void add(Game game, int playerNumber, int playerNumber1) {
+
+    List<Player> players = game.getPlayers();
+    List<Card> cards = players.get(playerNumber).getCards();
+    List<Marble> marbles1 = players.get(playerNumber1).getMarbles();
+    for (int cardNumber = 0; cardNumber < cards.size(); cardNumber++) {
+      Card card = cards.get(cardNumber);
+      Card sameRankCard = null;
+      for (int i = 0; i < cardNumber && sameRankCard == null; i++) {
+        if (cards.get(i).getRank().equals(card.getRank())) {
+          sameRankCard = cards.get(i);
+        }
+      }
+      if (sameRankCard != null) {
+        addSameRank(game, playerNumber, playerNumber1, card, sameRankCard);
+        continue;
+      }
+      boolean jack = card.getRank().equals(Card.Rank.JACK);
+      boolean seven = card.getRank().equals(Card.Rank.SEVEN);
+      for (int marbleNumber1 = 0; marbleNumber1 < marbles1.size(); marbleNumber1++) {
+        Marble marble1 = marbles1.get(marbleNumber1);
+        if (seven) {
+          add(game, card, marble1, UserPlay.NO_MARBLE, FULL_SPLIT_VALUE,
+              UserPlay.builder(playerNumber, card, marble1).build());
+        } else if (!jack) {
+          add(game, card, marble1, UserPlay.NO_MARBLE, NO_SPLIT,
+              UserPlay.builder(playerNumber, card, marble1).build());
+          continue;
+        }
+        // the jack and a split seven need a second marble
+        for (int playerNumber2 = 0; playerNumber2 < players.size(); playerNumber2++) {
+          List<Marble> marbles2 = players.get(playerNumber2).getMarbles();
+          for (int marbleNumber2 = 0; marbleNumber2 < marbles2.size(); marbleNumber2++) {
+            Marble marble2 = marbles2.get(marbleNumber2);
+            if (marble2 == marble1) {
+              continue;
+            }
+            if (jack) {
+              add(game, card, marble1, marble2, NO_SPLIT,
+                  UserPlay.builder(playerNumber, card, marble1).setMarble2(marble2).build());
+            } else {
+              for (int splitValue = 1; splitValue < FULL_SPLIT_VALUE; splitValue++) {
+                add(game, card, marble1, marble2, splitValue,
+                    UserPlay.builder(playerNumber, card, marble1).setMarble2(marble2)
+                        .setSplitValue1(splitValue).build());
+              }
+            }
+          }
+        }
+      }
+    }
+
+  }
+
+  /**
+   * Validates the inputs that were legal for an earlier card of the same rank (that move one of
+   * the marbles of the given player first) with the given card and adds the legal inputs to the
+   * index. The suit of a card does not change how it moves the marbles, so the other inputs are
+   * not legal for the given card either.
+   *
+   * @param game the game
+   * @param playerNumber the player number of the player making the play
+   * @param playerNumber1 the player number of the player that owns the first marble
+   * @param card the card
+   * @param sameRankCard the earlier card of the same rank
+   */
+  protected void addSameRank(Game game, int playerNumber, int playerNumber1, Card card,
+      Card sameRankCard) {
+
+    // the keys are copied first since the index is changed while they are validated
+    sameRankKeys.clear();
+    int cardIndex = CardTable.getIndex(sameRankCard);
+    IntMap.Keys keys = legalPlays.keys();
+    while (keys.hasNext) {
+      int key = keys.next();
+      int marbleValue1 = key / NUMBER_OF_SPLIT_VALUES / numberOfMarbleValues
+          % numberOfMarbleValues;
+      if (key / NUMBER_OF_SPLIT_VALUES / numberOfMarbleValues / numberOfMarbleValues == cardIndex
+          && (marbleValue1 - 1) / Game.NUMBER_OF_MARBLES_PER_PLAYER == playerNumber1) {
+        sameRankKeys.add(key);
+      }
+    }
+
+    for (int i = 0; i < sameRankKeys.size; i++) {
+      int key = sameRankKeys.get(i);
+      int splitValue = key % NUMBER_OF_SPLIT_VALUES;
+      Marble marble2 = getMarble(game, key / NUMBER_OF_SPLIT_VALUES % numberOfMarbleValues);
+      Marble marble1 = getMarble(game, key / NUMBER_OF_SPLIT_VALUES / numberOfMarbleValues
+          % numberOfMarbleValues);
+      UserPlay userPlay;
+      if (marble2 == UserPlay.NO_MARBLE) {
+        userPlay = UserPlay.builder(playerNumber, card, marble1).build();
+      } else if (splitValue == NO_SPLIT) {
+        userPlay = UserPlay.builder(playerNumber, card, marble1).setMarble2(marble2).build();
+      } else {
+        userPlay = UserPlay.builder(playerNumber, card, marble1).setMarble2(marble2)
+            .setSplitValue1(splitValue).build();
+      }
+      add(game, card, marble1, marble2, splitValue, userPlay);
+    }
+
+  }
+
+  /**
+   * Validates the given user play and adds it (and its partial inputs) to the index if it is
+   * legal.
+   *
+   * @param game the game
+   * @param card the card
+   * @param marble1 the first marble
+   * @param marble2 the second marble (or UserPlay.NO_MARBLE)
+   * @param splitValue the split value (or NO_SPLIT)
+   * @param userPlay the user play for the input
+   */
+  protected void add(Game game, Card card, Marble marble1, Marble marble2, int splitValue,
+      UserPlay userPlay) {
+    Play play;
+    try {
+      play = game.validate(userPlay);
+    } catch (InvalidPlayException ex) {
+      return;
+    }
+    legalPlays.put(getKey(card, marble1, marble2, splitValue), play);
+    legalPrefixes.add(getKey(card, UserPlay.NO_MARBLE, UserPlay.NO_MARBLE, NO_SPLIT));
+    legalPrefixes.add(getKey(card, UserPlay.NO_MARBLE, UserPlay.NO_MARBLE, splitValue));
+    legalPrefixes.add(getKey(card, marble1, UserPlay.NO_MARBLE, splitValue));
+    if (marble2 != UserPlay.NO_MARBLE && card.getRank().equals(Card.Rank.JACK)) {
+      // the marbles of a swap can be selected in either order
+      legalPlays.put(getKey(card, marble2, marble1, NO_SPLIT), play);
+      legalPrefixes.add(getKey(card, marble2, UserPlay.NO_MARBLE, NO_SPLIT));
+    }
+  }
+
+  /**
+   * Removes all of the plays from the index.
+   */
+  public void clear() {
+    legalPlays.clear();
+    legalPrefixes.clear();
+  }
+
+  /**
+   * Returns the legal play for the given input.
+   *
+   * @param card the card
+   * @param marble1 the first marble
+   * @param marble2 the second marble (or UserPlay.NO_MARBLE)
+   * @param splitValue the split value (or UserPlay.NO_SPLIT_VALUE)
+   * @return the legal play for the given input (or null if the input is not a legal play)
+   */
+  public Play get(Card card, Marble marble1, Marble marble2, int splitValue) {
+    return legalPlays.get(getKey(card, marble1, marble2, splitValue));
+  }
+
+  /**
+   * Returns whether or not the given partial input leads to at least one legal play. Use
+   * UserPlay.NO_MARBLE and UserPlay.NO_SPLIT_VALUE for the parts of the input that have not been
+   * selected yet.
+   *
+   * @param card the card
+   * @param marble1 the first marble (or UserPlay.NO_MARBLE)
+   * @param splitValue the split value (or UserPlay.NO_SPLIT_VALUE)
+   * @return whether or not the given partial input leads to at least one legal play
+   */
+  public boolean isLegalPrefix(Card card, Marble marble1, int splitValue) {
+    return legalPrefixes.contains(getKey(card, marble1, UserPlay.NO_MARBLE, splitValue));
+  }
+
+  /**
+   * Returns the key for the given input.
+   *
+   * @param card the card
+   * @param marble1 the first marble (or UserPlay.NO_MARBLE)
+   * @param marble2 the second marble (or UserPlay.NO_MARBLE)
+   * @param splitValue the split value (1 to 7, any other value means no split value)
+   * @return the key for the given input
+   */
+  protected int getKey(Card card, Marble marble1, Marble marble2, int splitValue) {
+    int key = CardTable.getIndex(card);
+    key = key * numberOfMarbleValues + getMarbleValue(marble1);
+    key = key * numberOfMarbleValues + getMarbleValue(marble2);
+    return key * NUMBER_OF_SPLIT_VALUES
+        + (splitValue >= 1 && splitValue <= FULL_SPLIT_VALUE ? splitValue : NO_SPLIT);
+  }
+
+  /**
+   * Returns the marble for the given value used in the keys.
+   *
+   * @param game the game
+   * @param marbleValue the value used for the marble in the keys
+   * @return the marble for the given value (or UserPlay.NO_MARBLE)
+   */
+  protected static Marble getMarble(Game game, int marbleValue) {
+    if (marbleValue == 0) {
+      return UserPlay.NO_MARBLE;
+    }
+    return game.getPlayers().get((marbleValue - 1) / Game.NUMBER_OF_MARBLES_PER_PLAYER)
+        .getMarbles().get((marbleValue - 1) % Game.NUMBER_OF_MARBLES_PER_PLAYER);
+  }
+
+  /**
+   * Returns the value used for the given marble in the keys.
+   *
+   * @param marble the marble (or UserPlay.NO_MARBLE)
+   * @return the value used for the given marble in the keys
+   */
+  protected static int getMarbleValue(Marble marble) {
+    if (marble == UserPlay.NO_MARBLE) {
+      return 0;
+    }
+    return marble.getPlayerNumber() * Game.NUMBER_OF_MARBLES_PER_PLAYER + marble.getMarbleNumber()
+        + 1;
+  }
+
+}
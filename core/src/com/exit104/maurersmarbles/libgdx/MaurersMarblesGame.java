@@ -6,10 +6,14 @@
 package com.exit104.maurersmarbles.libgdx;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.assets.AssetManager;
-import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.scenes.scene2d.ui.Image;
+import com.badlogic.gdx.scenes.scene2d.ui.Label;
+import com.badlogic.gdx.scenes.scene2d.ui.Label.LabelStyle;
 
 import com.exit104.maurersmarbles.libgdx.screens.SplashStageScreen;
 
@@ -20,10 +24,35 @@ import com.exit104.maurersmarbles.libgdx.screens.SplashStageScreen;
  */
 public class MaurersMarblesGame extends com.badlogic.gdx.Game {
 
+  /**
+   * The file name of the texture atlas that contains all of the game images. The atlas is generated
+   * from the images in assets-raw/game by the packTextures task.
+   */
+  public static final String TEXTURE_ATLAS = "maurers-marbles.atlas";
+  /**
+   * The maximum amount of time (in milliseconds) to spend loading assets in a single frame.
+   */
+  public static final int ASSET_LOADING_BUDGET_MILLIS = 8;
   /**
    * The asset manager for the game.
    */
   protected final transient AssetManager assetManager = new AssetManager();
+  /**
+   * The performance overlay displayed on top of the stage screens.
+   */
+  protected final transient PerformanceOverlay performanceOverlay = new PerformanceOverlay();
+  /**
+   * The local path of the CSV file the performance stats are written to (or null).
+   */
+  protected transient String performanceCsvPath;
+  /**
+   * The screen manager that disposes the screens that are no longer shown.
+   */
+  protected final transient ScreenManager screenManager = new ScreenManager(this);
+  /**
+   * The registry of the fonts shared by the screens.
+   */
+  protected final transient FontRegistry fontRegistry = new FontRegistry();
 
   /**
    * Creates a new MaurersMarblesGame.
@@ -41,22 +70,149 @@ public class MaurersMarblesGame extends com.badlogic.gdx.Game {
     return assetManager;
   }
 
-  public Image createImage(String fileName) {
-    TextureRegion textureRegion = new TextureRegion(assetManager.get(fileName, Texture.class));
+  /**
+   * Returns the performance overlay displayed on top of the stage screens.
+   *
+   * @return the performance overlay displayed on top of the stage screens
+   */
+  public PerformanceOverlay getPerformanceOverlay() {
+    return performanceOverlay;
+  }
+
+  /**
+   * Sets the local path of the CSV file the performance stats are written to. This must be called
+   * before the game is created (the file is opened in create()).
+   *
+   * @param performanceCsvPath the local path of the CSV file the performance stats are written to
+   *     (or null to not write the performance stats)
+   */
+  public void setPerformanceCsvPath(String performanceCsvPath) {
+    this.performanceCsvPath = performanceCsvPath;
+  }
+
+  /**
+   * Returns the screen manager for the game.
+   *
+   * @return the screen manager for the game
+   */
+  public ScreenManager getScreenManager() {
+    return screenManager;
+  }
+
+  /**
+   * Returns the registry of the fonts shared by the screens.
+   *
+   * @return the registry of the fonts shared by the screens
+   */
+  public FontRegistry getFontRegistry() {
+    return fontRegistry;
+  }
+
+  /**
+   * Acquires a reference to the assets used by the game screen. The assets are queued to be loaded
+   * by the asset manager (if they are not already loaded) and are loaded incrementally by calling
+   * updateAssetLoading() once per frame. The asset manager counts the references, so each call
+   * must be matched by a call to releaseGameAssets() and the assets are unloaded when the last
+   * reference is released.
+   */
+  public void acquireGameAssets() {
+    assetManager.load(TEXTURE_ATLAS, TextureAtlas.class);
+  }
+
+  /**
+   * Releases a reference to the assets used by the game screen (see acquireGameAssets()).
+   */
+  public void releaseGameAssets() {
+    assetManager.unload(TEXTURE_ATLAS);
+  }
+
+  /**
+   * Loads queued assets for at most ASSET_LOADING_BUDGET_MILLIS milliseconds and requests another
+   * frame if there are still assets left to load (rendering is not continuous).
+   *
+   * @return whether or not all of the queued assets have been loaded
+   */
+  public boolean updateAssetLoading() {
+    boolean finished = assetManager.update(ASSET_LOADING_BUDGET_MILLIS);
+    if (!finished) {
+      Gdx.graphics.requestRendering();
+    }
+    return finished;
+  }
+
+  /**
+   * Returns a new image for the given region in the texture atlas. The texture atlas must be loaded
+   * by the asset manager before calling this method.
+   *
+   * @param regionName the name of the region in the texture atlas (image file name without the
+   *     extension)
+   * @return a new image for the given region in the texture atlas
+   */
+  public Image createImage(String regionName) {
+    return new Image(createTextureRegion(regionName));
+  }
+
+  /**
+   * Returns a new label that draws the given text with a shared distance field font.
+   *
+   * @param text the text of the label
+   * @param fontFileName the file name of the font (FontRegistry.REGULAR or FontRegistry.BOLD)
+   * @param textHeight the height (in world units) of the text
+   * @param color the color of the text
+   * @return a new label that draws the given text with a shared distance field font
+   */
+  public Label createLabel(CharSequence text, String fontFileName, float textHeight,
+      Color color) {
+    Label label = new DistanceFieldLabel(text, new LabelStyle(fontRegistry.getFont(fontFileName),
+        color), fontRegistry.getDistanceFieldShader());
+    label.setFontScale(FontRegistry.getFontScale(textHeight));
+    return label;
+  }
+
+  /**
+   * Returns a new texture region (flipped to match the y-down stage camera) for the given region in
+   * the texture atlas. The texture atlas must be loaded by the asset manager before calling this
+   * method.
+   *
+   * @param regionName the name of the region in the texture atlas (image file name without the
+   *     extension)
+   * @return a new texture region for the given region in the texture atlas
+   */
+  public TextureRegion createTextureRegion(String regionName) {
+    TextureAtlas.AtlasRegion atlasRegion = assetManager.get(TEXTURE_ATLAS, TextureAtlas.class)
+        .findRegion(regionName);
+    if (atlasRegion == null) {
+      throw new IllegalArgumentException("Unknown texture region: " + regionName);
+    }
+    TextureRegion textureRegion = new TextureRegion(atlasRegion);
     textureRegion.flip(false, true);
-    return new Image(textureRegion);
+    return textureRegion;
   }
 
   @Override
   public void create() {
     Gdx.graphics.setContinuousRendering(false);
+    if (performanceCsvPath != null) {
+      performanceOverlay.setCsvFile(Gdx.files.local(performanceCsvPath));
+    }
     this.setScreen(new SplashStageScreen(this));
   }
 
+  @Override
+  public void setScreen(Screen screen) {
+    Screen previousScreen = getScreen();
+    super.setScreen(screen);
+    screenManager.screenChanged(previousScreen, screen);
+  }
+
   @Override
   public void dispose() {
     super.dispose();
+    // the screens release their assets before the asset manager is disposed
+    screenManager.dispose();
     assetManager.dispose();
+    fontRegistry.dispose();
+    performanceOverlay.dispose();
   }
 
 }
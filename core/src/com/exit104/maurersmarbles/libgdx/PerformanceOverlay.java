@@ -0,0 +1,373 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.InputAdapter;
+import com.badlogic.gdx.InputProcessor;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.profiling.GLProfiler;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.Group;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.SnapshotArray;
+import com.badlogic.gdx.utils.StringBuilder;
+
+import java.util.Arrays;
+
+/**
+ * The PerformanceOverlay class collects per frame performance stats for the stage screens (frame,
+ * act and draw times, GL draw calls, texture binds and shader switches, actor count and memory use)
+ * and can display them on top of the screen and/or write them to a rolling CSV file. The overlay is
+ * toggled with F3 (or a three finger tap). Nothing is measured while the overlay is hidden and no
+ * CSV file is set.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class PerformanceOverlay implements Disposable {
+
+  /**
+   * The number of frames used to compute the frame time stats.
+   */
+  protected static final int NUMBER_OF_SAMPLES = 120;
+  /**
+   * The number of CSV rows to buffer before writing them to the CSV file.
+   */
+  protected static final int CSV_ROWS_PER_WRITE = 60;
+  /**
+   * The maximum size of the CSV file (in bytes) before it is rolled over.
+   */
+  protected static final long MAX_CSV_FILE_LENGTH = 1024 * 1024;
+  /**
+   * The header row of the CSV file.
+   */
+  protected static final String CSV_HEADER = "timeMillis,frameNanos,actNanos,drawNanos,drawCalls,"
+      + "textureBindings,shaderSwitches,actors,javaHeap,nativeHeap\n";
+  /**
+   * The number of nanoseconds in a millisecond.
+   */
+  protected static final float NANOS_PER_MILLI = 1000000.0f;
+  /**
+   * The number of nanoseconds in a second.
+   */
+  protected static final float NANOS_PER_SECOND = 1000000000.0f;
+  /**
+   * Whether or not the overlay is displayed.
+   */
+  protected transient boolean visible = false;
+  /**
+   * The index of the next sample in the sample arrays.
+   */
+  protected transient int sampleIndex = 0;
+  /**
+   * The number of samples in the sample arrays.
+   */
+  protected transient int numberOfSamples = 0;
+  /**
+   * The number of rows in the CSV buffer.
+   */
+  protected transient int numberOfCsvRows = 0;
+  /**
+   * The batch used to draw the overlay (created when first displayed).
+   */
+  protected transient SpriteBatch spriteBatch;
+  /**
+   * The font used to draw the overlay (created when first displayed).
+   */
+  protected transient BitmapFont bitmapFont;
+  /**
+   * The CSV file the stats are written to (or null to not write the stats).
+   */
+  protected transient FileHandle csvFile;
+  /**
+   * The profiler used to count the GL calls (created when first needed).
+   */
+  protected transient GLProfiler glProfiler;
+  /**
+   * The frame time (the time since the previous frame) of the recent frames in nanoseconds.
+   */
+  protected final transient float[] frameNanos = new float[NUMBER_OF_SAMPLES];
+  /**
+   * The act time of the recent frames in nanoseconds.
+   */
+  protected final transient float[] actNanos = new float[NUMBER_OF_SAMPLES];
+  /**
+   * The draw time of the recent frames in nanoseconds.
+   */
+  protected final transient float[] drawNanos = new float[NUMBER_OF_SAMPLES];
+  /**
+   * The array used to sort the frame times when computing the percentiles.
+   */
+  protected final transient float[] sortedFrameNanos = new float[NUMBER_OF_SAMPLES];
+  /**
+   * The text displayed in the overlay.
+   */
+  protected final transient StringBuilder text = new StringBuilder();
+  /**
+   * The CSV rows that have not been written to the CSV file yet.
+   */
+  protected final transient StringBuilder csvBuffer = new StringBuilder();
+  /**
+   * The input processor used to toggle the overlay.
+   */
+  protected final transient InputProcessor inputProcessor = new InputAdapter() {
+    @Override
+    public boolean keyDown(int keycode) {
+      if (keycode == Input.Keys.F3) {
+        setVisible(!visible);
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+      if (pointer == 2) {
+        setVisible(!visible);
+        return true;
+      }
+      return false;
+    }
+  };
+
+  /**
+   * Creates a new PerformanceOverlay.
+   */
+  public PerformanceOverlay() {
+    // do nothing (the graphics resources are created when they are first needed)
+  }
+
+  /**
+   * Returns the input processor used to toggle the overlay.
+   *
+   * @return the input processor used to toggle the overlay
+   */
+  public InputProcessor getInputProcessor() {
+    return inputProcessor;
+  }
+
+  /**
+   * Returns whether or not the stats are being collected (the overlay is visible or the stats are
+   * being written to a CSV file).
+   *
+   * @return whether or not the stats are being collected
+   */
+  public boolean isEnabled() {
+    return visible || csvFile != null;
+  }
+
+  /**
+   * Returns whether or not the overlay is displayed.
+   *
+   * @return whether or not the overlay is displayed
+   */
+  public boolean isVisible() {
+    return visible;
+  }
+
+  /**
+   * Sets whether or not the overlay is displayed.
+   *
+   * @param visible whether or not the overlay is displayed
+   */
+  public void setVisible(boolean visible) {
+    this.visible = visible;
+    updateProfiler();
+    Gdx.graphics.requestRendering();
+  }
+
+  /**
+   * Sets the CSV file the stats are written to. When the file grows larger than
+   * MAX_CSV_FILE_LENGTH it is moved to the same path with a ".1" suffix and a new file is started.
+   *
+   * @param csvFile the CSV file the stats are written to (or null to stop writing the stats)
+   */
+  public void setCsvFile(FileHandle csvFile) {
+    flushCsv();
+    this.csvFile = csvFile;
+    if (csvFile != null) {
+      csvFile.writeString(CSV_HEADER, false);
+    }
+    updateProfiler();
+  }
+
+  /**
+   * Enables or disables the GL profiler depending on whether or not the stats are being collected.
+   */
+  protected void updateProfiler() {
+    if (isEnabled()) {
+      if (glProfiler == null) {
+        glProfiler = new GLProfiler(Gdx.graphics);
+      }
+      glProfiler.enable();
+      glProfiler.reset();
+    } else if (glProfiler != null) {
+      glProfiler.disable();
+    }
+  }
+
+  /**
+   * Records the stats for the frame that was just drawn and draws the overlay (if visible). This
+   * should be called after the stage has been drawn. The frame time is the time since the previous
+   * frame (which includes the time spent outside of the stage, e.g. swapping the buffers), while
+   * the act and draw times only cover the stage. When rendering is not continuous the frame time
+   * also includes the time the screen was idle between two requested renders.
+   *
+   * @param stage the stage that was drawn
+   * @param delta the time since the previous frame in seconds
+   * @param actNanos the time spent in stage.act() in nanoseconds
+   * @param drawNanos the time spent in stage.draw() in nanoseconds
+   */
+  public void endFrame(Stage stage, float delta, long actNanos, long drawNanos) {
+
+    if (!isEnabled()) {
+      return;
+    }
+
+    // read the GL counts before the overlay itself is drawn
+    int drawCalls = glProfiler.getDrawCalls();
+    int textureBindings = glProfiler.getTextureBindings();
+    int shaderSwitches = glProfiler.getShaderSwitches();
+    int numberOfActors = countActors(stage.getRoot());
+    long javaHeap = Gdx.app.getJavaHeap();
+    long nativeHeap = Gdx.app.getNativeHeap();
+
+    long frameNanos = (long) (delta * NANOS_PER_SECOND);
+    this.frameNanos[sampleIndex] = frameNanos;
+    this.actNanos[sampleIndex] = actNanos;
+    this.drawNanos[sampleIndex] = drawNanos;
+    sampleIndex = (sampleIndex + 1) % NUMBER_OF_SAMPLES;
+    numberOfSamples = Math.min(numberOfSamples + 1, NUMBER_OF_SAMPLES);
+
+    if (csvFile != null) {
+      csvBuffer.append(System.currentTimeMillis()).append(',').append(frameNanos)
+          .append(',').append(actNanos).append(',').append(drawNanos).append(',')
+          .append(drawCalls).append(',').append(textureBindings).append(',')
+          .append(shaderSwitches).append(',').append(numberOfActors).append(',')
+          .append(javaHeap).append(',').append(nativeHeap).append('\n');
+      if (++numberOfCsvRows >= CSV_ROWS_PER_WRITE) {
+        flushCsv();
+      }
+    }
+
+    if (visible) {
+
+      System.arraycopy(frameNanos, 0, sortedFrameNanos, 0, numberOfSamples);
+      Arrays.sort(sortedFrameNanos, 0, numberOfSamples);
+
+      text.setLength(0);
+      text.append("fps ").append(Gdx.graphics.getFramesPerSecond()).append('\n');
+      text.append("frame ms p50 ").append(getPercentile(0.50f) / NANOS_PER_MILLI)
+          .append(" p95 ").append(getPercentile(0.95f) / NANOS_PER_MILLI)
+          .append(" p99 ").append(getPercentile(0.99f) / NANOS_PER_MILLI).append('\n');
+      text.append("act ms ").append(getAverage(this.actNanos) / NANOS_PER_MILLI)
+          .append(" draw ms ").append(getAverage(this.drawNanos) / NANOS_PER_MILLI).append('\n');
+      text.append("draw calls ").append(drawCalls).append(" texture binds ")
+          .append(textureBindings).append(" shader switches ").append(shaderSwitches)
+          .append('\n');
+      text.append("actors ").append(numberOfActors).append('\n');
+      text.append("java heap kb ").append(javaHeap / 1024).append(" native heap kb ")
+          .append(nativeHeap / 1024);
+
+      if (spriteBatch == null) {
+        spriteBatch = new SpriteBatch();
+        bitmapFont = new BitmapFont();
+        bitmapFont.setColor(Color.LIME);
+      }
+      spriteBatch.getProjectionMatrix().setToOrtho2D(0, 0, Gdx.graphics.getWidth(),
+          Gdx.graphics.getHeight());
+      spriteBatch.begin();
+      bitmapFont.draw(spriteBatch, text, 4, Gdx.graphics.getHeight() - 4);
+      spriteBatch.end();
+
+    }
+
+    glProfiler.reset();
+
+  }
+
+  /**
+   * Returns the given percentile of the sorted frame times.
+   *
+   * @param percentile the percentile (0 to 1)
+   * @return the given percentile of the sorted frame times in nanoseconds
+   */
+  protected float getPercentile(float percentile) {
+    if (numberOfSamples == 0) {
+      return 0.0f;
+    }
+    int index = Math.min(numberOfSamples - 1, (int) (percentile * numberOfSamples));
+    return sortedFrameNanos[index];
+  }
+
+  /**
+   * Returns the average of the given samples.
+   *
+   * @param samples the samples
+   * @return the average of the given samples
+   */
+  protected float getAverage(float[] samples) {
+    if (numberOfSamples == 0) {
+      return 0.0f;
+    }
+    float total = 0.0f;
+    for (int i = 0; i < numberOfSamples; i++) {
+      total += samples[i];
+    }
+    return total / numberOfSamples;
+  }
+
+  /**
+   * Returns the number of actors in the given group (including the group itself).
+   *
+   * @param group the group
+   * @return the number of actors in the given group
+   */
+  protected static int countActors(Group group) {
+    int count = 1;
+    SnapshotArray<Actor> children = group.getChildren();
+    for (int i = 0; i < children.size; i++) {
+      Actor child = children.get(i);
+      count += child instanceof Group ? countActors((Group) child) : 1;
+    }
+    return count;
+  }
+
+  /**
+   * Writes the buffered CSV rows to the CSV file (rolling the file over if it is too large).
+   */
+  protected void flushCsv() {
+    if (csvFile == null || csvBuffer.length() == 0) {
+      return;
+    }
+    if (csvFile.length() > MAX_CSV_FILE_LENGTH) {
+      csvFile.moveTo(csvFile.sibling(csvFile.name() + ".1"));
+      csvFile.writeString(CSV_HEADER, false);
+    }
+    csvFile.writeString(csvBuffer.toString(), true);
+    csvBuffer.setLength(0);
+    numberOfCsvRows = 0;
+  }
+
+  @Override
+  public void dispose() {
+    flushCsv();
+    if (glProfiler != null) {
+      glProfiler.disable();
+    }
+    if (spriteBatch != null) {
+      spriteBatch.dispose();
+      bitmapFont.dispose();
+    }
+  }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+
+import com.exit104.maurersmarbles.libgdx.screens.MainMenuStageScreen;
+
+/**
+ * The ScreenManager class manages the lifecycle of the screens shown by the game. When the game
+ * switches screens the outgoing screen is disposed (releasing its stage, fonts and assets), unless
+ * it is a screen that is kept to be shown again (the main menu). The screen is usually switched
+ * from inside of the outgoing screen (an action or an input listener), so the disposal is deferred
+ * with Gdx.app.postRunnable() until the current frame has finished.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class ScreenManager implements Disposable {
+
+  /**
+   * The game for the screens.
+   */
+  protected final transient MaurersMarblesGame maurersMarblesGame;
+  /**
+   * The main menu screen (or null if it has not been created). The main menu screen is kept and
+   * reused instead of being disposed.
+   */
+  protected transient MainMenuStageScreen mainMenuStageScreen;
+  /**
+   * The screens waiting to be disposed once the current frame has finished.
+   */
+  protected final transient Array<Screen> pendingDisposals = new Array<>(false, 4, Screen.class);
+  /**
+   * The runnable used to dispose the screens waiting to be disposed.
+   */
+  protected final transient Runnable disposePendingRunnable = new Runnable() {
+    @Override
+    public void run() {
+      disposePendingScreens();
+    }
+  };
+
+  /**
+   * Creates a new ScreenManager.
+   *
+   * @param maurersMarblesGame the game for the screens
+   */
+  public ScreenManager(MaurersMarblesGame maurersMarblesGame) {
+    this.maurersMarblesGame = maurersMarblesGame;
+  }
+
+  /**
+   * Returns the main menu screen (created the first time it is requested and reused after that).
+   *
+   * @return the main menu screen
+   */
+  public MainMenuStageScreen getMainMenuScreen() {
+    if (mainMenuStageScreen == null) {
+      mainMenuStageScreen = new MainMenuStageScreen(maurersMarblesGame);
+    }
+    return mainMenuStageScreen;
+  }
+
+  /**
+   * Returns whether or not the given screen is kept to be shown again (not disposed when it is
+   * hidden).
+   *
+   * @param screen the screen
+   * @return whether or not the given screen is kept to be shown again
+   */
+  public boolean isRetained(Screen screen) {
+    return screen != null && screen == mainMenuStageScreen;
+  }
+
+  /**
+   * Called by the game after the screen has changed. The previous screen is disposed once the
+   * current frame has finished (unless it is retained).
+   *
+   * @param previousScreen the screen that was hidden (or null)
+   * @param screen the screen that is now shown (or null)
+   */
+  public void screenChanged(Screen previousScreen, Screen screen) {
+    if (previousScreen == null || previousScreen == screen || isRetained(previousScreen)) {
+      return;
+    }
+    if (pendingDisposals.size == 0) {
+      Gdx.app.postRunnable(disposePendingRunnable);
+    }
+    pendingDisposals.add(previousScreen);
+  }
+
+  /**
+   * Disposes the screens waiting to be disposed.
+   */
+  protected void disposePendingScreens() {
+    for (int i = 0; i < pendingDisposals.size; i++) {
+      // a screen may have been shown again before it was disposed
+      Screen screen = pendingDisposals.get(i);
+      if (screen != maurersMarblesGame.getScreen()) {
+        screen.dispose();
+      }
+    }
+    pendingDisposals.clear();
+  }
+
+  @Override
+  public void dispose() {
+    disposePendingScreens();
+    Screen screen = maurersMarblesGame.getScreen();
+    if (screen != null && !isRetained(screen)) {
+      screen.dispose();
+    }
+    if (mainMenuStageScreen != null) {
+      mainMenuStageScreen.dispose();
+      mainMenuStageScreen = null;
+    }
+  }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+
+/**
+ * The TextureRegionActor class extends the Actor class to draw a single texture region directly
+ * with the actor's position, size, origin, scale and rotation. Unlike a Group wrapping an Image
+ * there are no children to traverse and no transform to push, so any number of these actors are
+ * drawn in one uninterrupted batch (as long as their regions are in the same texture). The region
+ * is tinted with both the actor's color (which can be animated with actions) and a separate tint
+ * used for state such as selection.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class TextureRegionActor extends Actor {
+
+  /**
+   * The texture region to draw (or null to draw nothing).
+   */
+  protected transient TextureRegion textureRegion;
+  /**
+   * The tint applied on top of the actor's color.
+   */
+  protected final transient Color tint = new Color(Color.WHITE);
+
+  /**
+   * Creates a new TextureRegionActor.
+   *
+   * @param textureRegion the texture region to draw (or null to draw nothing)
+   */
+  public TextureRegionActor(TextureRegion textureRegion) {
+    this.textureRegion = textureRegion;
+  }
+
+  /**
+   * Returns the texture region to draw.
+   *
+   * @return the texture region to draw (or null to draw nothing)
+   */
+  public TextureRegion getTextureRegion() {
+    return textureRegion;
+  }
+
+  /**
+   * Sets the texture region to draw.
+   *
+   * @param textureRegion the texture region to draw (or null to draw nothing)
+   */
+  public void setTextureRegion(TextureRegion textureRegion) {
+    this.textureRegion = textureRegion;
+  }
+
+  /**
+   * Returns the tint applied on top of the actor's color.
+   *
+   * @return the tint applied on top of the actor's color
+   */
+  public Color getTint() {
+    return tint;
+  }
+
+  /**
+   * Sets the tint applied on top of the actor's color.
+   *
+   * @param tint the tint applied on top of the actor's color
+   */
+  public void setTint(Color tint) {
+    this.tint.set(tint);
+  }
+
+  @Override
+  public void draw(Batch batch, float parentAlpha) {
+    if (textureRegion == null) {
+      return;
+    }
+    Color color = getColor();
+    batch.setColor(color.r * tint.r, color.g * tint.g, color.b * tint.b,
+        color.a * tint.a * parentAlpha);
+    batch.draw(textureRegion, getX(), getY(), getOriginX(), getOriginY(), getWidth(), getHeight(),
+        getScaleX(), getScaleY(), getRotation());
+  }
+
+}
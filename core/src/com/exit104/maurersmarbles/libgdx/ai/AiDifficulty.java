@@ -0,0 +1,96 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx.ai;
+
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+
+import com.exit104.maurersmarbles.Game;
+import com.exit104.maurersmarbles.PlaySelector;
+import com.exit104.maurersmarbles.ScoreBasedPlaySelector;
+
+/**
+ * The AiDifficulty enum defines the AI difficulty levels. Each level maps to the wall-clock time
+ * budget the AI may spend selecting a play and the number of threads used to run rollouts in that
+ * time. The easiest level uses the ScoreBasedPlaySelector without any search.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public enum AiDifficulty {
+
+  /**
+   * Selects the play with the best score (no search).
+   */
+  EASY(0, 0),
+  /**
+   * Searches for 250 milliseconds on a single thread.
+   */
+  NORMAL(250, 1),
+  /**
+   * Searches for 500 milliseconds on two threads.
+   */
+  HARD(500, 2),
+  /**
+   * Searches for one second on four threads.
+   */
+  EXPERT(1000, 4);
+
+  /**
+   * The maximum amount of time (in milliseconds) to spend selecting a play.
+   */
+  protected final transient int budgetMillis;
+  /**
+   * The number of threads used to run the rollouts.
+   */
+  protected final transient int numberOfThreads;
+
+  /**
+   * Creates a new AiDifficulty.
+   *
+   * @param budgetMillis the maximum amount of time (in milliseconds) to spend selecting a play
+   * @param numberOfThreads the number of threads used to run the rollouts
+   */
+  AiDifficulty(int budgetMillis, int numberOfThreads) {
+    this.budgetMillis = budgetMillis;
+    this.numberOfThreads = numberOfThreads;
+  }
+
+  /**
+   * Returns the maximum amount of time (in milliseconds) to spend selecting a play.
+   *
+   * @return the maximum amount of time (in milliseconds) to spend selecting a play
+   */
+  public int getBudgetMillis() {
+    return budgetMillis;
+  }
+
+  /**
+   * Returns the number of threads used to run the rollouts (0 if there is no search).
+   *
+   * @return the number of threads used to run the rollouts
+   */
+  public int getNumberOfThreads() {
+    return numberOfThreads;
+  }
+
+  /**
+   * Returns a new play selector for the given player at this difficulty level.
+   *
+   * @param game the game
+   * @param playerNumber the player number of the player
+   * @param asyncExecutor the executor used to run the rollouts (must have at least
+   *     getNumberOfThreads() threads, may be null for EASY)
+   * @return a new play selector for the given player at this difficulty level
+   */
+  public PlaySelector createPlaySelector(Game game, int playerNumber,
+      AsyncExecutor asyncExecutor) {
+    if (numberOfThreads == 0) {
+      return new ScoreBasedPlaySelector(game, playerNumber);
+    }
+    return new MonteCarloPlaySelector(game, playerNumber, this, asyncExecutor);
+  }
+
+}
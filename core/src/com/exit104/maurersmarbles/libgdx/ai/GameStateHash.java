@@ -0,0 +1,98 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx.ai;
+
+import com.exit104.maurersmarbles.Card;
+import com.exit104.maurersmarbles.Game;
+import com.exit104.maurersmarbles.Marble;
+import com.exit104.maurersmarbles.Player;
+import com.exit104.maurersmarbles.libgdx.CardTable;
+
+import java.util.List;
+
+/**
+ * The GameStateHash class computes a 64-bit hash of the state of a game (the cards in each hand,
+ * the board index of each marble and the order of the undealt cards) for a decision by a player.
+ * Two games with the same hash are treated as being at the same decision, so a play computed for
+ * one can be reused for the other.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public final class GameStateHash {
+
+  /**
+   * The initial value of the hash (FNV-1a 64-bit offset basis).
+   */
+  protected static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+  /**
+   * The multiplier used to mix each value into the hash (FNV-1a 64-bit prime).
+   */
+  protected static final long PRIME = 0x100000001b3L;
+  /**
+   * The value mixed into the hash to separate the lists of values.
+   */
+  protected static final int SEPARATOR = -1;
+
+  /**
+   * Prevents instances of GameStateHash from being created.
+   */
+  private GameStateHash() {
+    // do nothing
+  }
+
+  /**
+   * Returns the hash of the state of the given game for a decision by the given player.
+   *
+   * @param game the game
+   * @param playerNumber the player number of the player making the decision
+   * @return the hash of the state of the given game for a decision by the given player
+   */
+  public static long hash(Game game, int playerNumber) {
+
+    long hash = mix(OFFSET_BASIS, playerNumber);
+
+    List<Player> players = game.getPlayers();
+    for (int i = 0; i < players.size(); i++) {
+      Player player = players.get(i);
+      hash = mix(hash, SEPARATOR);
+      List<Card> cards = player.getCards();
+      for (int cardNumber = 0; cardNumber < cards.size(); cardNumber++) {
+        hash = mix(hash, CardTable.getIndex(cards.get(cardNumber)));
+      }
+      hash = mix(hash, SEPARATOR);
+      List<Marble> marbles = player.getMarbles();
+      for (int marbleNumber = 0; marbleNumber < marbles.size(); marbleNumber++) {
+        hash = mix(hash, marbles.get(marbleNumber).getBoardIndex());
+      }
+    }
+
+    hash = mix(hash, SEPARATOR);
+    List<Card> undealtCards = game.getCardDeck().getUndealtCards();
+    for (int i = 0; i < undealtCards.size(); i++) {
+      hash = mix(hash, CardTable.getIndex(undealtCards.get(i)));
+    }
+
+    return hash;
+
+  }
+
+  /**
+   * Mixes the given value into the given hash.
+   *
+   * @param hash the hash
+   * @param value the value
+   * @return the new hash
+   */
+  protected static long mix(long hash, int value) {
+    for (int i = 0; i < 4; i++) {
+      hash ^= (value >>> (i * 8)) & 0xff;
+      hash *= PRIME;
+    }
+    return hash;
+  }
+
+}
@@ -0,0 +1,537 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx.ai;
+
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+
+import com.exit104.maurersmarbles.Card;
+import com.exit104.maurersmarbles.Game;
+import com.exit104.maurersmarbles.Marble;
+import com.exit104.maurersmarbles.Play;
+import com.exit104.maurersmarbles.PlaySelector;
+import com.exit104.maurersmarbles.Player;
+import com.exit104.maurersmarbles.ScoreBasedPlaySelector;
+import com.exit104.maurersmarbles.event.Event;
+import com.exit104.maurersmarbles.event.EventListener;
+import com.exit104.maurersmarbles.event.ExitedStateGameEvent;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The MonteCarloPlaySelector class extends the PlaySelector class to select a play using a Monte
+ * Carlo search over the available plays. Each iteration picks one of the available plays using
+ * UCB1, plays it in a copy of the game and then plays the game out with RolloutPlaySelectors. The
+ * search runs on the threads of an AsyncExecutor (each thread keeps its own statistics which are
+ * merged at the end) until the wall-clock budget of the difficulty level runs out, and then the
+ * play that was visited the most is selected.
+ *
+ * <p>The game is copied with the Game copy constructor, which copies the game state (board, cards
+ * and turn) but not the play selectors or the event listeners. The player cannot see the cards in
+ * the other hands or the order of the card deck, so each rollout first deals those cards again at
+ * random (keeping the size of each hand and of the deck) and the search never uses the hidden
+ * cards. The plays of a copied game are matched to the available plays using getPlayKey().
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class MonteCarloPlaySelector extends PlaySelector {
+
+  /**
+   * The exploration constant for UCB1.
+   */
+  protected static final double EXPLORATION = Math.sqrt(2.0);
+  /**
+   * The maximum number of times to advance the game in a single rollout. Rollouts that do not
+   * finish are scored using the marbles that are home.
+   */
+  protected static final int MAX_ROLLOUT_ADVANCES = 400;
+  /**
+   * The result of a rollout that was stopped because the deadline passed.
+   */
+  protected static final double DEADLINE_PASSED = -1.0;
+  /**
+   * The result of a rollout that was stopped because the play was not one of the available plays
+   * in the copy of the game.
+   */
+  protected static final double PLAY_NOT_FOUND = -2.0;
+  /**
+   * The game.
+   */
+  protected final transient Game game;
+  /**
+   * The player number of the player.
+   */
+  protected final transient int playerNumber;
+  /**
+   * The difficulty level (time budget and number of threads).
+   */
+  protected final transient AiDifficulty aiDifficulty;
+  /**
+   * The executor used to run the rollouts.
+   */
+  protected final transient AsyncExecutor asyncExecutor;
+  /**
+   * The random number generator used to seed the search threads.
+   */
+  protected final transient RandomXS128 random = new RandomXS128();
+  /**
+   * The play selector used when no rollout finished within the time budget.
+   */
+  protected final transient ScoreBasedPlaySelector fallbackPlaySelector;
+  /**
+   * The results of the search tasks (reused for each play selection).
+   */
+  protected final transient Array<AsyncResult<SearchResult>> searchResults = new Array<>();
+
+  /**
+   * Creates a new MonteCarloPlaySelector.
+   *
+   * @param game the game
+   * @param playerNumber the player number of the player
+   * @param aiDifficulty the difficulty level (time budget and number of threads)
+   * @param asyncExecutor the executor used to run the rollouts (must have at least
+   *     aiDifficulty.getNumberOfThreads() threads)
+   */
+  public MonteCarloPlaySelector(Game game, int playerNumber, AiDifficulty aiDifficulty,
+      AsyncExecutor asyncExecutor) {
+    if (aiDifficulty.getNumberOfThreads() < 1) {
+      throw new IllegalArgumentException("Invalid AI difficulty: " + aiDifficulty);
+    }
+    this.game = game;
+    this.playerNumber = playerNumber;
+    this.aiDifficulty = aiDifficulty;
+    this.asyncExecutor = asyncExecutor;
+    fallbackPlaySelector = new ScoreBasedPlaySelector(game, playerNumber);
+  }
+
+  @Override
+  public void setAvailablePlays(Set<Play> plays) {
+
+    super.setAvailablePlays(plays);
+
+    Play[] availablePlays = plays.toArray(new Play[plays.size()]);
+    if (availablePlays.length == 1) {
+      setSelectedPlay(availablePlays[0]);
+      return;
+    }
+
+    String[] playKeys = new String[availablePlays.length];
+    for (int i = 0; i < availablePlays.length; i++) {
+      playKeys[i] = getPlayKey(availablePlays[i]);
+    }
+
+    // start the search threads, each searches from its own copy of the game until the deadline
+    long deadlineNanos = TimeUtils.nanoTime() + TimeUtils.millisToNanos(
+        aiDifficulty.getBudgetMillis());
+    searchResults.clear();
+    for (int i = 0; i < aiDifficulty.getNumberOfThreads(); i++) {
+      searchResults.add(asyncExecutor.submit(new SearchTask(new Game(game), playKeys,
+          deadlineNanos, random.nextLong())));
+    }
+
+    // merge the statistics from the search threads
+    int[] visits = new int[availablePlays.length];
+    for (int i = 0; i < searchResults.size; i++) {
+      SearchResult searchResult = searchResults.get(i).get();
+      for (int playIndex = 0; playIndex < visits.length; playIndex++) {
+        visits[playIndex] += searchResult.visits[playIndex];
+      }
+    }
+    searchResults.clear();
+
+    // select the most visited play (or fall back if no rollout finished in time)
+    int bestPlayIndex = -1;
+    for (int playIndex = 0; playIndex < visits.length; playIndex++) {
+      if (visits[playIndex] > 0
+          && (bestPlayIndex == -1 || visits[playIndex] > visits[bestPlayIndex])) {
+        bestPlayIndex = playIndex;
+      }
+    }
+    if (bestPlayIndex == -1) {
+      fallbackPlaySelector.setAvailablePlays(plays);
+      setSelectedPlay(fallbackPlaySelector.getSelectedPlay());
+    } else {
+      setSelectedPlay(availablePlays[bestPlayIndex]);
+    }
+
+  }
+
+  /**
+   * Returns the key used to match a play in a copy of the game to the same play in the game.
+   *
+   * @param play the play
+   * @return the key used to match a play in a copy of the game to the same play in the game
+   */
+  protected String getPlayKey(Play play) {
+    return play.toString();
+  }
+
+  /**
+   * Returns the reward (0 to 1) for the player at the end of a rollout. A win is worth 1, otherwise
+   * the reward is based on how many more marbles the player has home than the best opponent.
+   *
+   * @param rolloutGame the game at the end of the rollout
+   * @return the reward (0 to 1) for the player at the end of a rollout
+   */
+  protected double getReward(Game rolloutGame) {
+    int marblesHome = 0;
+    int bestOpponentMarblesHome = 0;
+    List<Player> players = rolloutGame.getPlayers();
+    for (int i = 0; i < players.size(); i++) {
+      int count = getNumberOfMarblesHome(rolloutGame, players.get(i));
+      if (i == playerNumber) {
+        marblesHome = count;
+      } else {
+        bestOpponentMarblesHome = Math.max(bestOpponentMarblesHome, count);
+      }
+    }
+    if (marblesHome == Game.NUMBER_OF_MARBLES_PER_PLAYER) {
+      return 1.0;
+    }
+    return 0.5 + (marblesHome - bestOpponentMarblesHome)
+        / (2.0 * Game.NUMBER_OF_MARBLES_PER_PLAYER);
+  }
+
+  /**
+   * Returns the number of marbles the given player has in their home spaces.
+   *
+   * @param rolloutGame the game
+   * @param player the player
+   * @return the number of marbles the given player has in their home spaces
+   */
+  protected static int getNumberOfMarblesHome(Game rolloutGame, Player player) {
+    Set<Integer> homeBoardIndexes = rolloutGame.getBoard().getHomeBoardIndexes(
+        player.getPlayerNumber());
+    int count = 0;
+    List<Marble> marbles = player.getMarbles();
+    for (int i = 0; i < marbles.size(); i++) {
+      if (homeBoardIndexes.contains(marbles.get(i).getBoardIndex())) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * The SearchResult class contains the statistics collected by a single search thread.
+   */
+  protected static class SearchResult {
+
+    /**
+     * The number of finished rollouts for each available play.
+     */
+    protected final transient int[] visits;
+    /**
+     * The total reward of the finished rollouts for each available play.
+     */
+    protected final transient double[] totalRewards;
+
+    /**
+     * Creates a new SearchResult.
+     *
+     * @param numberOfPlays the number of available plays
+     */
+    protected SearchResult(int numberOfPlays) {
+      visits = new int[numberOfPlays];
+      totalRewards = new double[numberOfPlays];
+    }
+
+  }
+
+  /**
+   * The SearchTask class runs rollouts from a copy of the game on a search thread until the
+   * deadline. The game copy, the random number generator and the statistics are owned by the
+   * task, so nothing is shared between the search threads.
+   */
+  protected class SearchTask implements AsyncTask<SearchResult> {
+
+    /**
+     * The copy of the game the rollouts start from.
+     */
+    protected final transient Game rootGame;
+    /**
+     * The keys of the available plays.
+     */
+    protected final transient String[] playKeys;
+    /**
+     * The time (from TimeUtils.nanoTime()) at which the search must stop.
+     */
+    protected final transient long deadlineNanos;
+    /**
+     * The random number generator used by the rollouts.
+     */
+    protected final transient RandomXS128 taskRandom;
+    /**
+     * The cards the player cannot see (reused for each rollout).
+     */
+    protected final transient Array<Card> unseenCards = new Array<>(false, 64);
+    /**
+     * Whether or not each of the available plays was not found in the copy of the game (the play
+     * is not tried again, since it would not be found in any rollout).
+     */
+    protected final transient boolean[] notFound;
+
+    /**
+     * Creates a new SearchTask.
+     *
+     * @param rootGame the copy of the game the rollouts start from
+     * @param playKeys the keys of the available plays
+     * @param deadlineNanos the time (from TimeUtils.nanoTime()) at which the search must stop
+     * @param seed the seed for the random number generator used by the rollouts
+     */
+    protected SearchTask(Game rootGame, String[] playKeys, long deadlineNanos, long seed) {
+      this.rootGame = rootGame;
+      this.playKeys = playKeys;
+      this.deadlineNanos = deadlineNanos;
+      taskRandom = new RandomXS128(seed);
+      notFound = new boolean[playKeys.length];
+    }
+
+    @Override
+    public SearchResult call() throws Exception {
+      SearchResult searchResult = new SearchResult(playKeys.length);
+      int totalVisits = 0;
+      while (TimeUtils.nanoTime() < deadlineNanos) {
+        int playIndex = selectPlayIndex(searchResult, totalVisits);
+        if (playIndex == -1) {
+          // none of the plays were found in the copy
+          break;
+        }
+        double reward = rollout(playIndex);
+        if (reward == DEADLINE_PASSED) {
+          break;
+        } else if (reward == PLAY_NOT_FOUND) {
+          // the other plays are still searched (the play is never visited, so it is not selected)
+          notFound[playIndex] = true;
+          continue;
+        }
+        searchResult.visits[playIndex]++;
+        searchResult.totalRewards[playIndex] += reward;
+        totalVisits++;
+      }
+      return searchResult;
+    }
+
+    /**
+     * Returns the index of the play to try next using UCB1 (plays that have not been tried yet are
+     * tried first and plays that were not found in the copy are skipped).
+     *
+     * @param searchResult the statistics collected so far
+     * @param totalVisits the total number of finished rollouts
+     * @return the index of the play to try next (or -1 if none of the plays were found)
+     */
+    protected int selectPlayIndex(SearchResult searchResult, int totalVisits) {
+      int bestPlayIndex = -1;
+      double bestValue = Double.NEGATIVE_INFINITY;
+      double logTotalVisits = Math.log(Math.max(1, totalVisits));
+      for (int playIndex = 0; playIndex < playKeys.length; playIndex++) {
+        if (notFound[playIndex]) {
+          continue;
+        }
+        int visits = searchResult.visits[playIndex];
+        if (visits == 0) {
+          return playIndex;
+        }
+        double value = searchResult.totalRewards[playIndex] / visits
+            + EXPLORATION * Math.sqrt(logTotalVisits / visits);
+        if (value > bestValue) {
+          bestValue = value;
+          bestPlayIndex = playIndex;
+        }
+      }
+      return bestPlayIndex;
+    }
+
+    /**
+     * Plays the given play in a copy of the game (with the unseen cards dealt again) and then plays
+     * the game out.
+     *
+     * @param playIndex the index of the play to play first
+     * @return the reward for the player (or DEADLINE_PASSED if the deadline passed during the
+     *     rollout or PLAY_NOT_FOUND if the play was not found in the copy)
+     */
+    protected double rollout(int playIndex) {
+
+      Game rolloutGame = new Game(rootGame);
+      determinize(rolloutGame);
+
+      List<Player> players = rolloutGame.getPlayers();
+      FirstPlaySelector firstPlaySelector = null;
+      for (int i = 0; i < players.size(); i++) {
+        RolloutPlaySelector rolloutPlaySelector = new RolloutPlaySelector(rolloutGame, i,
+            taskRandom);
+        if (i == playerNumber) {
+          firstPlaySelector = new FirstPlaySelector(playKeys[playIndex], rolloutPlaySelector);
+          players.get(i).setPlaySelector(firstPlaySelector);
+        } else {
+          players.get(i).setPlaySelector(rolloutPlaySelector);
+        }
+      }
+      GameOverListener gameOverListener = new GameOverListener();
+      rolloutGame.addEventListener(gameOverListener);
+
+      for (int advances = 0; advances < MAX_ROLLOUT_ADVANCES && !gameOverListener.gameOver;
+          advances++) {
+        if (TimeUtils.nanoTime() >= deadlineNanos) {
+          return DEADLINE_PASSED;
+        }
+        rolloutGame.advance();
+        if (firstPlaySelector.notFound) {
+          return PLAY_NOT_FOUND;
+        }
+      }
+
+      return getReward(rolloutGame);
+
+    }
+
+    /**
+     * Deals the cards the player cannot see (the cards in the other hands and the undealt cards)
+     * again in a random order, keeping the size of each hand and of the card deck.
+     *
+     * @param rolloutGame the copy of the game
+     */
+    protected void determinize(Game rolloutGame) {
+
+      List<Player> players = rolloutGame.getPlayers();
+      List<Card> undealtCards = rolloutGame.getCardDeck().getUndealtCards();
+      unseenCards.clear();
+      for (int i = 0; i < players.size(); i++) {
+        if (i != playerNumber) {
+          addAll(unseenCards, players.get(i).getCards());
+        }
+      }
+      addAll(unseenCards, undealtCards);
+
+      // Fisher-Yates with the random number generator of the task
+      for (int i = unseenCards.size - 1; i > 0; i--) {
+        unseenCards.swap(i, taskRandom.nextInt(i + 1));
+      }
+
+      int index = 0;
+      for (int i = 0; i < players.size(); i++) {
+        if (i != playerNumber) {
+          index = setAll(players.get(i).getCards(), unseenCards, index);
+        }
+      }
+      setAll(undealtCards, unseenCards, index);
+      unseenCards.clear();
+
+    }
+
+  }
+
+  /**
+   * Adds all of the cards in the given list to the given array.
+   *
+   * @param array the array
+   * @param cards the list of cards
+   */
+  protected static void addAll(Array<Card> array, List<Card> cards) {
+    for (int i = 0; i < cards.size(); i++) {
+      array.add(cards.get(i));
+    }
+  }
+
+  /**
+   * Replaces each of the cards in the given list with the next card in the given array.
+   *
+   * @param cards the list of cards
+   * @param array the array
+   * @param index the index of the next card in the array
+   * @return the index of the next card in the array after the list has been filled
+   */
+  protected static int setAll(List<Card> cards, Array<Card> array, int index) {
+    for (int i = 0; i < cards.size(); i++) {
+      cards.set(i, array.get(index++));
+    }
+    return index;
+  }
+
+  /**
+   * The FirstPlaySelector class extends the PlaySelector class to select a specific play the first
+   * time the player plays in a rollout and to delegate to a rollout play selector after that.
+   */
+  protected class FirstPlaySelector extends PlaySelector {
+
+    /**
+     * The key of the play to select first (or null once it has been selected).
+     */
+    protected transient String firstPlayKey;
+    /**
+     * The play selector used after the first play.
+     */
+    protected final transient PlaySelector rolloutPlaySelector;
+    /**
+     * Whether or not the play to select first was not one of the available plays (the rollout is
+     * aborted).
+     */
+    protected transient boolean notFound = false;
+
+    /**
+     * Creates a new FirstPlaySelector.
+     *
+     * @param firstPlayKey the key of the play to select first
+     * @param rolloutPlaySelector the play selector used after the first play
+     */
+    protected FirstPlaySelector(String firstPlayKey, PlaySelector rolloutPlaySelector) {
+      this.firstPlayKey = firstPlayKey;
+      this.rolloutPlaySelector = rolloutPlaySelector;
+    }
+
+    @Override
+    public void setAvailablePlays(Set<Play> plays) {
+      super.setAvailablePlays(plays);
+      if (firstPlayKey == null) {
+        rolloutPlaySelector.setAvailablePlays(plays);
+        setSelectedPlay(rolloutPlaySelector.getSelectedPlay());
+        return;
+      }
+      for (Play play : plays) {
+        if (firstPlayKey.equals(getPlayKey(play))) {
+          firstPlayKey = null;
+          setSelectedPlay(play);
+          return;
+        }
+      }
+      // the play keys do not match in the copy, so the rollout play is used to keep the game
+      // going and the rollout is aborted
+      notFound = true;
+      firstPlayKey = null;
+      rolloutPlaySelector.setAvailablePlays(plays);
+      setSelectedPlay(rolloutPlaySelector.getSelectedPlay());
+    }
+
+  }
+
+  /**
+   * The GameOverListener class implements the EventListener interface to detect the end of a
+   * rollout.
+   */
+  protected static class GameOverListener implements EventListener {
+
+    /**
+     * Whether or not the game is over.
+     */
+    protected transient boolean gameOver = false;
+
+    @Override
+    public void handleEvent(Event event) {
+      if (event instanceof ExitedStateGameEvent
+          && ((ExitedStateGameEvent) event).getState() == Game.State.GAME_OVER) {
+        gameOver = true;
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,282 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx.ai;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+
+import com.exit104.maurersmarbles.Game;
+import com.exit104.maurersmarbles.Play;
+import com.exit104.maurersmarbles.PlaySelector;
+import com.exit104.maurersmarbles.Player;
+import com.exit104.maurersmarbles.libgdx.GameLogicExecutor;
+import com.exit104.maurersmarbles.libgdx.GameRecorder;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The Ponderer class precomputes the next AI decisions while the animations for the last advance
+ * are running. After each advance a copy of the game is advanced on a pondering thread with the AI
+ * seats selecting their plays as usual, and each selected play is cached by the game state hash of
+ * the decision (see GameStateHash). When the real game reaches the same decision the
+ * PonderingPlaySelector takes the cached play instead of searching again. Pondering stops at the
+ * first decision by a seat that is not pondered (the user), after MAX_PONDER_ADVANCES advances or
+ * when the real game is advanced. If the real game diverges from the copy (for example the deck is
+ * shuffled differently) the hashes do not match and the cached plays are never used.
+ *
+ * <p>Pondering is stopped before the real game is advanced, so the pondering and the real AI
+ * searches never compete for the AI threads.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class Ponderer implements GameLogicExecutor.AdvanceListener, Disposable {
+
+  /**
+   * The maximum number of times to advance the copy of the game after each real advance.
+   */
+  protected static final int MAX_PONDER_ADVANCES = 8;
+  /**
+   * The maximum number of cached plays (the cache is cleared when it is full).
+   */
+  protected static final int MAX_CACHED_PLAYS = 64;
+  /**
+   * The difficulty level of the AI seats.
+   */
+  protected final transient AiDifficulty aiDifficulty;
+  /**
+   * The executor used by the AI seats to search for plays.
+   */
+  protected final transient AsyncExecutor aiExecutor;
+  /**
+   * The executor that runs the pondering thread.
+   */
+  protected final transient AsyncExecutor ponderExecutor = new AsyncExecutor(1, "ponder");
+  /**
+   * The map that contains the cached plays. The key into the map is the game state hash of the
+   * decision and the value is the key of the play that was selected (see getPlayKey()). The map is
+   * only written by the pondering thread and only read by the game logic thread while pondering is
+   * stopped.
+   */
+  protected final transient LongMap<String> cachedPlayKeys = new LongMap<>();
+  /**
+   * The result of the pondering task (or null if not pondering).
+   */
+  protected transient AsyncResult<Void> ponderResult;
+  /**
+   * Whether or not the pondering task should stop.
+   */
+  protected transient volatile boolean stopRequested = false;
+  /**
+   * The number of decisions that were taken from the cache.
+   */
+  protected transient int numberOfHits = 0;
+  /**
+   * The number of decisions that were not in the cache.
+   */
+  protected transient int numberOfMisses = 0;
+
+  /**
+   * Creates a new Ponderer.
+   *
+   * @param aiDifficulty the difficulty level of the AI seats
+   * @param aiExecutor the executor used by the AI seats to search for plays
+   */
+  public Ponderer(AiDifficulty aiDifficulty, AsyncExecutor aiExecutor) {
+    this.aiDifficulty = aiDifficulty;
+    this.aiExecutor = aiExecutor;
+  }
+
+  /**
+   * Returns the key used to match a play in a copy of the game to the same play in the game.
+   *
+   * @param play the play
+   * @return the key used to match a play in a copy of the game to the same play in the game
+   */
+  protected static String getPlayKey(Play play) {
+    return play.toString();
+  }
+
+  /**
+   * Returns the number of decisions that were taken from the cache.
+   *
+   * @return the number of decisions that were taken from the cache
+   */
+  public int getNumberOfHits() {
+    return numberOfHits;
+  }
+
+  /**
+   * Returns the number of decisions that were not in the cache.
+   *
+   * @return the number of decisions that were not in the cache
+   */
+  public int getNumberOfMisses() {
+    return numberOfMisses;
+  }
+
+  /**
+   * Removes and returns the cached play for the given decision. This must only be called on the
+   * game logic thread (while pondering is stopped).
+   *
+   * @param hash the game state hash of the decision
+   * @param plays the available plays
+   * @return the cached play for the given decision (or null if there is no cached play)
+   */
+  public Play takeCachedPlay(long hash, Set<Play> plays) {
+    String playKey = cachedPlayKeys.remove(hash);
+    if (playKey != null) {
+      for (Play play : plays) {
+        if (playKey.equals(getPlayKey(play))) {
+          numberOfHits++;
+          return play;
+        }
+      }
+    }
+    numberOfMisses++;
+    return null;
+  }
+
+  @Override
+  public void beforeAdvance(Game game) {
+    stop();
+  }
+
+  @Override
+  public void afterAdvance(Game game) {
+
+    // copy the game on the game logic thread (the game does not change until the next advance)
+    final Game ponderGame = new Game(game);
+    List<Player> players = game.getPlayers();
+    List<Player> ponderPlayers = ponderGame.getPlayers();
+    for (int i = 0; i < players.size(); i++) {
+      ponderPlayers.get(i).setPlaySelector(isPondered(players.get(i).getPlaySelector())
+          ? new RecordingPlaySelector(ponderGame, i) : new StopPlaySelector());
+    }
+    final MonteCarloPlaySelector.GameOverListener gameOverListener
+        = new MonteCarloPlaySelector.GameOverListener();
+    ponderGame.addEventListener(gameOverListener);
+
+    stopRequested = false;
+    ponderResult = ponderExecutor.submit(new AsyncTask<Void>() {
+      @Override
+      public Void call() throws Exception {
+        for (int advances = 0; advances < MAX_PONDER_ADVANCES && !stopRequested
+            && !gameOverListener.gameOver; advances++) {
+          ponderGame.advance();
+        }
+        return null;
+      }
+    });
+
+  }
+
+  /**
+   * Returns whether or not the given play selector (or the play selector it records) ponders.
+   *
+   * @param playSelector the play selector
+   * @return whether or not the given play selector (or the play selector it records) ponders
+   */
+  protected static boolean isPondered(PlaySelector playSelector) {
+    if (playSelector instanceof GameRecorder.RecordedPlaySelector) {
+      playSelector = ((GameRecorder.RecordedPlaySelector) playSelector).getPlaySelector();
+    }
+    return playSelector instanceof PonderingPlaySelector;
+  }
+
+  /**
+   * Stops pondering and waits for the pondering thread (a search that is in progress is finished
+   * and cached since it is likely the next decision).
+   */
+  public void stop() {
+    stopRequested = true;
+    if (ponderResult != null) {
+      AsyncResult<Void> result = ponderResult;
+      ponderResult = null;
+      try {
+        result.get();
+      } catch (GdxRuntimeException ex) {
+        // pondering is speculative, so a failure only means there are no cached plays
+        Gdx.app.error("Ponderer", "Pondering failed", ex);
+        cachedPlayKeys.clear();
+      }
+    }
+  }
+
+  @Override
+  public void dispose() {
+    stop();
+    ponderExecutor.dispose();
+  }
+
+  /**
+   * The RecordingPlaySelector class extends the PlaySelector class to select the plays for an AI
+   * seat in the copy of the game and to cache each selected play.
+   */
+  protected class RecordingPlaySelector extends PlaySelector {
+
+    /**
+     * The copy of the game.
+     */
+    protected final transient Game ponderGame;
+    /**
+     * The player number of the player.
+     */
+    protected final transient int playerNumber;
+    /**
+     * The play selector used to select the plays.
+     */
+    protected final transient PlaySelector playSelector;
+
+    /**
+     * Creates a new RecordingPlaySelector.
+     *
+     * @param ponderGame the copy of the game
+     * @param playerNumber the player number of the player
+     */
+    protected RecordingPlaySelector(Game ponderGame, int playerNumber) {
+      this.ponderGame = ponderGame;
+      this.playerNumber = playerNumber;
+      playSelector = aiDifficulty.createPlaySelector(ponderGame, playerNumber, aiExecutor);
+    }
+
+    @Override
+    public void setAvailablePlays(Set<Play> plays) {
+      super.setAvailablePlays(plays);
+      long hash = GameStateHash.hash(ponderGame, playerNumber);
+      playSelector.setAvailablePlays(plays);
+      Play play = playSelector.getSelectedPlay();
+      if (cachedPlayKeys.size >= MAX_CACHED_PLAYS) {
+        cachedPlayKeys.clear();
+      }
+      cachedPlayKeys.put(hash, getPlayKey(play));
+      setSelectedPlay(play);
+    }
+
+  }
+
+  /**
+   * The StopPlaySelector class extends the PlaySelector class to stop pondering at the first
+   * decision by a seat that is not pondered (the copy of the game waits for a play that is never
+   * selected).
+   */
+  protected class StopPlaySelector extends PlaySelector {
+
+    @Override
+    public void setAvailablePlays(Set<Play> plays) {
+      super.setAvailablePlays(plays);
+      stopRequested = true;
+    }
+
+  }
+
+}
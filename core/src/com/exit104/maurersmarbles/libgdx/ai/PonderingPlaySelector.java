@@ -0,0 +1,68 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx.ai;
+
+import com.exit104.maurersmarbles.Game;
+import com.exit104.maurersmarbles.Play;
+import com.exit104.maurersmarbles.PlaySelector;
+
+import java.util.Set;
+
+/**
+ * The PonderingPlaySelector class extends the PlaySelector class to take the play for a decision
+ * from the Ponderer cache when the decision was precomputed, and to fall back to another play
+ * selector when it was not.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class PonderingPlaySelector extends PlaySelector {
+
+  /**
+   * The game.
+   */
+  protected final transient Game game;
+  /**
+   * The player number of the player.
+   */
+  protected final transient int playerNumber;
+  /**
+   * The play selector used when the decision was not precomputed.
+   */
+  protected final transient PlaySelector playSelector;
+  /**
+   * The ponderer that precomputes the decisions.
+   */
+  protected final transient Ponderer ponderer;
+
+  /**
+   * Creates a new PonderingPlaySelector.
+   *
+   * @param game the game
+   * @param playerNumber the player number of the player
+   * @param playSelector the play selector used when the decision was not precomputed
+   * @param ponderer the ponderer that precomputes the decisions
+   */
+  public PonderingPlaySelector(Game game, int playerNumber, PlaySelector playSelector,
+      Ponderer ponderer) {
+    this.game = game;
+    this.playerNumber = playerNumber;
+    this.playSelector = playSelector;
+    this.ponderer = ponderer;
+  }
+
+  @Override
+  public void setAvailablePlays(Set<Play> plays) {
+    super.setAvailablePlays(plays);
+    Play play = ponderer.takeCachedPlay(GameStateHash.hash(game, playerNumber), plays);
+    if (play == null) {
+      playSelector.setAvailablePlays(plays);
+      play = playSelector.getSelectedPlay();
+    }
+    setSelectedPlay(play);
+  }
+
+}
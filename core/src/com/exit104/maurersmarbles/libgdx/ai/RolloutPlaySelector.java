@@ -0,0 +1,80 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx.ai;
+
+import com.badlogic.gdx.math.RandomXS128;
+
+import com.exit104.maurersmarbles.Game;
+import com.exit104.maurersmarbles.Play;
+import com.exit104.maurersmarbles.PlaySelector;
+import com.exit104.maurersmarbles.ScoreBasedPlaySelector;
+
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * The RolloutPlaySelector class extends the PlaySelector class to select the plays during a Monte
+ * Carlo rollout. The play with the best score is selected, except that a random play is selected
+ * with a small probability so the rollouts explore more than a single line of play.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class RolloutPlaySelector extends PlaySelector {
+
+  /**
+   * The probability of selecting a random play instead of the play with the best score.
+   */
+  public static final float RANDOM_PLAY_PROBABILITY = 0.1f;
+  /**
+   * The play selector used to select the play with the best score.
+   */
+  protected final transient ScoreBasedPlaySelector scoreBasedPlaySelector;
+  /**
+   * The random number generator used to select the random plays.
+   */
+  protected final transient RandomXS128 random;
+
+  /**
+   * Creates a new RolloutPlaySelector.
+   *
+   * @param game the game (a copy used for the rollout)
+   * @param playerNumber the player number of the player
+   * @param random the random number generator used to select the random plays (not shared between
+   *     threads)
+   */
+  public RolloutPlaySelector(Game game, int playerNumber, RandomXS128 random) {
+    scoreBasedPlaySelector = new ScoreBasedPlaySelector(game, playerNumber);
+    this.random = random;
+  }
+
+  @Override
+  public void setAvailablePlays(Set<Play> plays) {
+    super.setAvailablePlays(plays);
+    if (plays.size() > 1 && random.nextFloat() < RANDOM_PLAY_PROBABILITY) {
+      setSelectedPlay(getPlay(plays, random.nextInt(plays.size())));
+    } else {
+      scoreBasedPlaySelector.setAvailablePlays(plays);
+      setSelectedPlay(scoreBasedPlaySelector.getSelectedPlay());
+    }
+  }
+
+  /**
+   * Returns the play at the given position in the iteration order of the given plays.
+   *
+   * @param plays the plays
+   * @param index the position of the play
+   * @return the play at the given position in the iteration order of the given plays
+   */
+  protected static Play getPlay(Set<Play> plays, int index) {
+    Iterator<Play> iterator = plays.iterator();
+    for (int i = 0; i < index; i++) {
+      iterator.next();
+    }
+    return iterator.next();
+  }
+
+}
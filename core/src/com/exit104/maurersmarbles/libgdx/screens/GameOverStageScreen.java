@@ -5,16 +5,13 @@
 
 package com.exit104.maurersmarbles.libgdx.screens;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.GL20;
-import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.ui.Label;
-import com.badlogic.gdx.scenes.scene2d.ui.Label.LabelStyle;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 
 import com.exit104.maurersmarbles.GameStats;
+import com.exit104.maurersmarbles.libgdx.FontRegistry;
 import com.exit104.maurersmarbles.libgdx.MaurersMarblesGame;
 
 /**
@@ -25,6 +22,10 @@ import com.exit104.maurersmarbles.libgdx.MaurersMarblesGame;
 public class GameOverStageScreen extends StageScreen {
 
   protected final transient GameStats gameStats;
+  /**
+   * The height (in world units) of the game stats text.
+   */
+  protected static final float LABEL_TEXT_HEIGHT = 16.0f;
 
   /**
    * Creates a new GameOverStageScreen.
@@ -35,6 +36,7 @@ public class GameOverStageScreen extends StageScreen {
   public GameOverStageScreen(MaurersMarblesGame maurersMarblesGame, GameStats gameStats) {
     super(maurersMarblesGame);
     this.gameStats = gameStats;
+    clearColor.set(Color.WHITE);
   }
 
   @Override
@@ -42,18 +44,6 @@ public class GameOverStageScreen extends StageScreen {
     // TODO
   }
 
-  @Override
-  public void render(float delta) {
-
-    stage.getCamera().update();
-    Gdx.gl.glClearColor(1, 1, 1, 1);
-    Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
-
-    stage.act();
-    stage.draw();
-
-  }
-
   @Override
   public void resume() {
     // TODO
@@ -64,12 +54,12 @@ public class GameOverStageScreen extends StageScreen {
 
     super.show();
 
-    BitmapFont bitmapFont = new BitmapFont();
-    Label label = new Label(gameStats.toString(), new LabelStyle(bitmapFont, Color.BLACK));
+    Label label = maurersMarblesGame.createLabel(gameStats.toString(), FontRegistry.REGULAR,
+        LABEL_TEXT_HEIGHT, Color.BLACK);
     label.addListener(new ClickListener() {
       @Override
       public void clicked(InputEvent event, float x, float y) {
-        maurersMarblesGame.setScreen(new MainMenuStageScreen(maurersMarblesGame));
+        maurersMarblesGame.setScreen(maurersMarblesGame.getScreenManager().getMainMenuScreen());
       }
     });
     stage.addActor(label);
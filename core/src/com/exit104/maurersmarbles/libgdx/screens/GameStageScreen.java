@@ -5,40 +5,50 @@
 
 package com.exit104.maurersmarbles.libgdx.screens;
 
+import com.badlogic.gdx.Application.ApplicationType;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
-import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.RandomXS128;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.scenes.scene2d.Action;
+import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.Group;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
+import com.badlogic.gdx.scenes.scene2d.Touchable;
 import com.badlogic.gdx.scenes.scene2d.actions.Actions;
 import com.badlogic.gdx.scenes.scene2d.actions.MoveToAction;
 import com.badlogic.gdx.scenes.scene2d.actions.ParallelAction;
 import com.badlogic.gdx.scenes.scene2d.actions.RotateToAction;
-import com.badlogic.gdx.scenes.scene2d.actions.RunnableAction;
 import com.badlogic.gdx.scenes.scene2d.actions.SequenceAction;
 import com.badlogic.gdx.scenes.scene2d.actions.SizeToAction;
 import com.badlogic.gdx.scenes.scene2d.ui.Image;
 import com.badlogic.gdx.scenes.scene2d.ui.Label;
-import com.badlogic.gdx.scenes.scene2d.ui.Label.LabelStyle;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.SnapshotArray;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
 
 import com.exit104.maurersmarbles.Card;
 import com.exit104.maurersmarbles.CardDeck;
 import com.exit104.maurersmarbles.Game;
 import com.exit104.maurersmarbles.Game.State;
 import com.exit104.maurersmarbles.GameStats;
-import com.exit104.maurersmarbles.InvalidPlayException;
 import com.exit104.maurersmarbles.Marble;
 import com.exit104.maurersmarbles.Play;
 import com.exit104.maurersmarbles.PlaySelector;
 import com.exit104.maurersmarbles.Player;
 import com.exit104.maurersmarbles.Rectangle;
-import com.exit104.maurersmarbles.ScoreBasedPlaySelector;
 import com.exit104.maurersmarbles.UserPlay;
 import com.exit104.maurersmarbles.event.CannotPlayGameEvent;
 import com.exit104.maurersmarbles.event.DealtCardGameEvent;
@@ -48,7 +58,21 @@ import com.exit104.maurersmarbles.event.ExitedStateGameEvent;
 import com.exit104.maurersmarbles.event.MovedMarbleGameEvent;
 import com.exit104.maurersmarbles.event.PlayedCardGameEvent;
 import com.exit104.maurersmarbles.event.ShuffledCardDeckGameEvent;
+import com.exit104.maurersmarbles.libgdx.CardTable;
+import com.exit104.maurersmarbles.libgdx.CullingGroup;
+import com.exit104.maurersmarbles.libgdx.EventDispatcher;
+import com.exit104.maurersmarbles.libgdx.EventDispatcher.EventHandler;
+import com.exit104.maurersmarbles.libgdx.FontRegistry;
+import com.exit104.maurersmarbles.libgdx.GameLogicExecutor;
+import com.exit104.maurersmarbles.libgdx.GameRecorder;
+import com.exit104.maurersmarbles.libgdx.GameReplay;
+import com.exit104.maurersmarbles.libgdx.GameReplayExecutor;
+import com.exit104.maurersmarbles.libgdx.LegalPlayIndex;
 import com.exit104.maurersmarbles.libgdx.MaurersMarblesGame;
+import com.exit104.maurersmarbles.libgdx.TextureRegionActor;
+import com.exit104.maurersmarbles.libgdx.ai.AiDifficulty;
+import com.exit104.maurersmarbles.libgdx.ai.Ponderer;
+import com.exit104.maurersmarbles.libgdx.ai.PonderingPlaySelector;
 import com.exit104.maurersmarbles.ui.BoardView;
 import com.exit104.maurersmarbles.ui.CardHandView;
 import com.exit104.maurersmarbles.ui.DefaultScreenLayout;
@@ -56,12 +80,10 @@ import com.exit104.maurersmarbles.ui.GridBoardView;
 import com.exit104.maurersmarbles.ui.HorizontalCardHandView;
 import com.exit104.maurersmarbles.ui.ScreenLayout;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 
 /**
  *
@@ -73,7 +95,7 @@ public class GameStageScreen extends StageScreen implements EventListener {
   /**
    * Whether or not to wait for user input before advancing the game.
    */
-  protected transient boolean waitForUserInput = false;
+  protected transient volatile boolean waitForUserInput = false;
   /**
    * The board actor for the game board.
    */
@@ -107,6 +129,10 @@ public class GameStageScreen extends StageScreen implements EventListener {
    * The length of time (in seconds) to play a card.
    */
   protected static final float DURATION_PLAY_CARD = 0.5f;
+  /**
+   * The alpha used for the marbles that cannot be selected for the current user input.
+   */
+  protected static final float ALPHA_DIMMED_MARBLE = 0.35f;
   /**
    * The game.
    */
@@ -119,6 +145,12 @@ public class GameStageScreen extends StageScreen implements EventListener {
    * The user player number.
    */
   protected static final int USER_PLAYER_NUMBER = 0;
+  /**
+   * The array of player colors. The index into the array is the player number and the value is the
+   * color for that player.
+   */
+  protected static final Color[] PLAYER_COLORS = new Color[]{Color.BLUE, Color.GREEN, Color.RED,
+    Color.YELLOW, Color.ORANGE, Color.PURPLE, Color.CYAN, Color.BROWN};
   /**
    * The split value that is currently selected by the user.
    */
@@ -128,14 +160,131 @@ public class GameStageScreen extends StageScreen implements EventListener {
    */
   protected final transient List<Card> cannotPlayPlayerCards = new ArrayList<>();
   /**
-   * The list of events that were fired since the last game state change.
+   * The events that were fired since the last game state change. The array is reused (cleared) for
+   * each state change.
+   */
+  protected final transient Array<Event> queuedEvents = new Array<>(false, 64, Event.class);
+  /**
+   * The dispatcher used to handle the events fired by the game.
+   */
+  protected final transient EventDispatcher eventDispatcher = new EventDispatcher();
+  /**
+   * The dispatcher used to create the actions for the queued events when the game state changes.
+   */
+  protected final transient EventDispatcher queuedEventDispatcher = new EventDispatcher();
+  /**
+   * The dispatcher used to handle the events that need to see the game state at the time of the
+   * event (called on the game logic thread).
+   */
+  protected final transient EventDispatcher logicThreadEventDispatcher = new EventDispatcher();
+  /**
+   * The local file the snapshot of the game is written to when the application is paused.
+   */
+  public static final String SNAPSHOT_FILE_NAME = "game.snapshot";
+  /**
+   * The local file the recording of the game is written to when the application is paused or the
+   * game is over (so a game from the field can be replayed).
+   */
+  public static final String REPLAY_FILE_NAME = "game.replay";
+  /**
+   * The time step (in seconds) used to finish the animations when they are skipped (longer than
+   * any animation).
+   */
+  protected static final float SKIP_ANIMATION_DELTA = 1000.0f;
+  /**
+   * The difficulty of the AI players.
+   */
+  protected final transient AiDifficulty aiDifficulty;
+  /**
+   * The seed for the presentation randomness (recorded with the game so a replay is shown the same
+   * way).
+   */
+  protected final transient long seed;
+  /**
+   * The generator used for all of the presentation randomness (reseeded for each state change).
+   */
+  protected final transient RandomXS128 random;
+  /**
+   * The number of state changes that have been handled (the step of a replay), counted from the
+   * start of the game (a restored game or a replay that was seeked starts at its step).
+   */
+  protected transient int stepNumber;
+  /**
+   * The recorder used to record the inputs of the game (or null if the game is a replay). The
+   * recording is also the snapshot of the game.
+   */
+  protected final transient GameRecorder gameRecorder;
+  /**
+   * The length of the recording at the last state change that was handled (the recording ends
+   * between two advances of the game there).
+   */
+  protected transient int recordingLength;
+  /**
+   * The replay used to advance the game (or null if the game is not a replay).
+   */
+  protected final transient GameReplay gameReplay;
+  /**
+   * The play selector for the user (or null if the game is a replay).
    */
-  protected final transient List<Event> queuedEvents = new ArrayList<>();
+  protected final transient UserPlaySelector userPlaySelector;
   /**
-   * The map that contains the card actors for the cards. The key into the map is the card string
-   * (toString()), and the value is the card actor for that card.
+   * Whether or not the animations are finished as soon as they are created (only used for
+   * replays, which are then run to the end in a single frame).
    */
-  protected final transient Map<String, CardActor> cardActors = new TreeMap<>();
+  protected transient boolean skipAnimations = false;
+  /**
+   * Whether or not the application is paused (the snapshot file is only kept while it is).
+   */
+  protected transient boolean paused = false;
+  /**
+   * The executor used to advance the game on the game logic thread.
+   */
+  protected final transient GameLogicExecutor gameLogicExecutor;
+  /**
+   * The executor used by the AI players to search for plays (or null if the AI does not search).
+   */
+  protected final transient AsyncExecutor aiExecutor;
+  /**
+   * The ponderer used to precompute the AI decisions while the animations are running (or null if
+   * the AI does not search or there are no threads).
+   */
+  protected final transient Ponderer ponderer;
+  /**
+   * Whether or not the card and marble actors need to be laid out once the game logic thread is
+   * idle (the screen was resized while the game was being advanced).
+   */
+  protected transient boolean layoutPending = false;
+  /**
+   * The world width the actors were last laid out for.
+   */
+  protected transient float layoutWorldWidth = -1;
+  /**
+   * The world height the actors were last laid out for.
+   */
+  protected transient float layoutWorldHeight = -1;
+  /**
+   * The array of hand layouts. The index into the array is the player number and the value is the
+   * (memoized) layout of the hand for that player.
+   */
+  protected final transient HandLayout[] handLayouts;
+  /**
+   * Whether or not the card deck and discard pile need to be repositioned.
+   */
+  protected transient boolean pileLayoutInvalid = true;
+  /**
+   * The sequence action the queued event actions are added to (only set while the queued events are
+   * being dispatched).
+   */
+  protected transient SequenceAction queuedEventsSequenceAction;
+  /**
+   * The state that was exited (only set while the queued events are being dispatched).
+   */
+  protected transient State exitedState;
+  /**
+   * The table that contains the card actors for the cards. The key into the table is the card and
+   * the value is the card actor for that card.
+   */
+  protected final transient CardTable<CardActor> cardActors = new CardTable<>();
   /**
    * The array of marble actors for the marbles. The index into the first array is the player number
    * and the index into the second array is the marble number and the value is the marble actor for
@@ -156,9 +305,65 @@ public class GameStageScreen extends StageScreen implements EventListener {
    */
   protected final transient PlayerActor[] playerActors;
   /**
-   * The set of card actors in the discard pile.
+   * The layer that contains the card actors that are in a hand or being animated.
+   */
+  protected final transient CullingGroup cardsGroup = new CullingGroup();
+  /**
+   * The layer that contains the card actors in the card deck (undealt cards).
+   */
+  protected final transient CardPileGroup cardDeckGroup = new CardPileGroup();
+  /**
+   * The layer that contains the card actors in the discard pile (in the order they were
+   * discarded).
+   */
+  protected final transient CardPileGroup discardPileGroup = new CardPileGroup();
+  /**
+   * The layer that contains the split card actors (hidden when no split cards are shown).
+   */
+  protected final transient CullingGroup splitCardsGroup = new CullingGroup();
+  /**
+   * The bounds of the discard pile.
    */
-  protected final transient Set<CardActor> discardPile = new LinkedHashSet<>();
+  // TODO determine where to get the discard pile rectangle
+  protected final transient Rectangle discardPileRectangle = new Rectangle(0, 0, 0, 0);
+  /**
+   * The bounds of the card deck (undealt cards).
+   */
+  // TODO determine where to get the card deck rectangle
+  protected final transient Rectangle cardDeckRectangle = new Rectangle(0, 0, 0, 0);
+  /**
+   * The vector reused when converting board coordinates to stage coordinates.
+   */
+  protected final transient Vector2 tmpVector2 = new Vector2();
+  /**
+   * The texture region for the back of the cards (shared by all of the card actors).
+   */
+  protected final transient TextureRegion cardBackTextureRegion;
+  /**
+   * The texture region for the marbles (shared by all of the marble actors).
+   */
+  protected final transient TextureRegion marbleTextureRegion;
+  /**
+   * The runnable used to advance the game once the queued animations have finished.
+   */
+  protected final transient Runnable advanceGameRunnable = new Runnable() {
+    @Override
+    public void run() {
+      gameLogicExecutor.advance();
+    }
+  };
+  /**
+   * The runnable used to lay out the dealt cards and advance the game once the cards have been
+   * dealt.
+   */
+  protected final transient Runnable dealtCardsRunnable = new Runnable() {
+    @Override
+    public void run() {
+      updateCardActors();
+      // TODO add animation to move cards to player areas?
+      gameLogicExecutor.advance();
+    }
+  };
 
   // debugging/working
   protected transient Label mainMenuLabel;
@@ -167,44 +372,131 @@ public class GameStageScreen extends StageScreen implements EventListener {
   ScreenLayout screenLayout;
   CardHandView cardHandView;
 
+  /**
+   * Creates a new GameStageScreen with EASY AI players.
+   *
+   * @param maurersMarblesGame the game for this screen
+   * @param numberOfPlayers the number of players in the game
+   */
+  public GameStageScreen(MaurersMarblesGame maurersMarblesGame, int numberOfPlayers) {
+    this(maurersMarblesGame, numberOfPlayers, AiDifficulty.EASY);
+  }
+
   /**
    * Creates a new GameStageScreen.
    *
    * @param maurersMarblesGame the game for this screen
    * @param numberOfPlayers the number of players in the game
+   * @param aiDifficulty the difficulty of the AI players
+   */
+  public GameStageScreen(MaurersMarblesGame maurersMarblesGame, int numberOfPlayers,
+      AiDifficulty aiDifficulty) {
+    this(maurersMarblesGame, new Game(numberOfPlayers), aiDifficulty);
+  }
+
+  /**
+   * Creates a new GameStageScreen for the given game. The game is recorded from the start (the
+   * recording is also the snapshot of the game), so it must not have been advanced yet.
+   *
+   * @param maurersMarblesGame the game for this screen
+   * @param game the game
+   * @param aiDifficulty the difficulty of the AI players
+   */
+  public GameStageScreen(MaurersMarblesGame maurersMarblesGame, Game game,
+      AiDifficulty aiDifficulty) {
+    this(maurersMarblesGame, game, aiDifficulty, null, null);
+  }
+
+  /**
+   * Creates a new GameStageScreen that replays a recorded game. The game is advanced by the replay
+   * (there are no AI players and no user input) and is not saved or recorded.
+   *
+   * @param maurersMarblesGame the game for this screen
+   * @param gameReplay the replay of the recorded game
+   */
+  public GameStageScreen(MaurersMarblesGame maurersMarblesGame, GameReplay gameReplay) {
+    this(maurersMarblesGame, gameReplay.getGame(), AiDifficulty.EASY, gameReplay, null);
+  }
+
+  /**
+   * Creates a new GameStageScreen for the given game. The actors are laid out from the state of
+   * the game, so a game restored from a snapshot is shown as it was without any animations.
+   *
+   * @param maurersMarblesGame the game for this screen
+   * @param game the game
+   * @param aiDifficulty the difficulty of the AI players
+   * @param gameReplay the replay used to advance the game (or null if the game is not a replay)
+   * @param gameRecorder the recorder that continues the recording of a restored game (or null if
+   *     the game is a replay or is recorded from the start)
    */
-  public GameStageScreen(final MaurersMarblesGame maurersMarblesGame, int numberOfPlayers) {
+  protected GameStageScreen(final MaurersMarblesGame maurersMarblesGame, Game game,
+      AiDifficulty aiDifficulty, GameReplay gameReplay, GameRecorder gameRecorder) {
 
     super(maurersMarblesGame);
+    this.aiDifficulty = aiDifficulty;
+    this.gameReplay = gameReplay;
+    int numberOfPlayers = game.getNumberOfPlayers();
+    clearColor.set(0.75f, 0.75f, 0.75f, 1);
 
-    // TODO move elsewhere?
     // TODO define const image names
-    maurersMarblesGame.getAssetManager().load("arrow.png", Texture.class);
-    maurersMarblesGame.getAssetManager().load("board_background.png", Texture.class);
-    maurersMarblesGame.getAssetManager().load("board_space.png", Texture.class);
-    maurersMarblesGame.getAssetManager().load("card_back.png", Texture.class);
-    for (Card.Rank rank : Card.Rank.values()) {
-      for (Card.Suit suit : Card.Suit.values()) {
-        maurersMarblesGame.getAssetManager().load("card_" + rank.toString().toLowerCase()
-            + suit.toString().toLowerCase() + ".png", Texture.class);
-      }
+    // the game assets are prefetched by the splash and main menu screens, so this only blocks if
+    // the screen is created before the prefetch has finished
+    acquireGameAssets();
+    maurersMarblesGame.getAssetManager().finishLoadingAsset(MaurersMarblesGame.TEXTURE_ATLAS);
+
+    // a live game is recorded (the plays selected by the players are recorded by wrapping their
+    // play selectors) and a replay uses the same presentation seed as the recorded game
+    this.game = game;
+    if (gameReplay != null) {
+      seed = gameReplay.getSeed();
+      this.gameRecorder = null;
+    } else if (gameRecorder != null) {
+      seed = gameRecorder.getSeed();
+      this.gameRecorder = gameRecorder;
+    } else {
+      seed = MathUtils.random.nextLong();
+      this.gameRecorder = new GameRecorder(game, seed);
     }
-    maurersMarblesGame.getAssetManager().load("marble.png", Texture.class);
-    maurersMarblesGame.getAssetManager().load("player_background.png", Texture.class);
-    maurersMarblesGame.getAssetManager().finishLoading();
+    recordingLength = this.gameRecorder == null ? 0 : this.gameRecorder.getLength();
+    // the presentation randomness of a step is the same however the game got to the step
+    stepNumber = gameReplay != null ? gameReplay.getStepNumber()
+        : this.gameRecorder.getStepNumber();
 
-    // create the game and initialize the players
-    game = new Game(numberOfPlayers);
+    // initialize the players (the play selectors of a replay feed the recorded plays to the game)
     // TODO add ability to be all AI players
-    game.getPlayers().get(USER_PLAYER_NUMBER).setPlaySelector(new UserPlaySelector());
-    for (int i = 1; i < game.getNumberOfPlayers(); i++) {
-      // TODO add the ability to set the AI difficulty
-      game.getPlayers().get(i).setPlaySelector(new ScoreBasedPlaySelector(game, i));
+    userPlaySelector = gameReplay == null ? new UserPlaySelector() : null;
+    if (gameReplay == null) {
+      game.getPlayers().get(USER_PLAYER_NUMBER).setPlaySelector(
+          this.gameRecorder.createRecordedPlaySelector(USER_PLAYER_NUMBER, userPlaySelector));
+    }
+    // the AI players run on the game logic thread and search on their own threads
+    aiExecutor = gameReplay == null && aiDifficulty.getNumberOfThreads() > 0
+        ? new AsyncExecutor(aiDifficulty.getNumberOfThreads(), "ai") : null;
+    // the searching AI players ponder their next decisions while the animations are running
+    ponderer = aiExecutor != null && Gdx.app.getType() != ApplicationType.WebGL
+        ? new Ponderer(aiDifficulty, aiExecutor) : null;
+    for (int i = 1; i < game.getNumberOfPlayers() && gameReplay == null; i++) {
+      PlaySelector playSelector = aiDifficulty.createPlaySelector(game, i, aiExecutor);
+      if (ponderer != null) {
+        playSelector = new PonderingPlaySelector(game, i, playSelector, ponderer);
+      }
+      game.getPlayers().get(i).setPlaySelector(this.gameRecorder.createRecordedPlaySelector(i,
+          playSelector));
     }
 
     // initialize the game stats which are displayed at the end of the game
     gameStats = new GameStats(game);
-    game.addEventListener(this);
+    registerEventHandlers();
+    EventListener logicThreadEventListener = new EventListener() {
+      @Override
+      public void handleEvent(Event event) {
+        logicThreadEventDispatcher.dispatch(event);
+      }
+    };
+    gameLogicExecutor = gameReplay == null ? new GameLogicExecutor(game, logicThreadEventListener)
+        : new GameReplayExecutor(gameReplay, logicThreadEventListener);
+    random = new RandomXS128(seed);
+    gameLogicExecutor.setAdvanceListener(ponderer);
 
     screenLayout = new DefaultScreenLayout(game.getNumberOfPlayers());
     cardHandView = new HorizontalCardHandView();
@@ -214,6 +506,9 @@ public class GameStageScreen extends StageScreen implements EventListener {
     ((HorizontalCardHandView) cardHandView).setPaddingTopScaleFactor(0.01f);
     ((HorizontalCardHandView) cardHandView).setSpaceBetweenCardsScaleFactor(-0.05f);
 
+    cardBackTextureRegion = maurersMarblesGame.createTextureRegion("card_back");
+    marbleTextureRegion = maurersMarblesGame.createTextureRegion("arrow");
+
     // create the board view and board actor
     boardView = new GridBoardView(game.getBoard());
     boardActor = new BoardActor();
@@ -237,12 +532,48 @@ public class GameStageScreen extends StageScreen implements EventListener {
       }
     }
 
-    // create the actors for the cards
-    for (int i = 0; i < CardDeck.NUMBER_OF_CARDS_IN_FULL_DECK; i++) {
-      Card card = game.getCardDeck().getUndealtCards().get(i);
-      CardActor cardActor = new CardActor(card);
-      cardActors.put(card.toString(), cardActor);
-      stage.addActor(cardActor);
+    handLayouts = new HandLayout[numberOfPlayers];
+    for (int playerNumber = 0; playerNumber < numberOfPlayers; playerNumber++) {
+      handLayouts[playerNumber] = new HandLayout();
+    }
+
+    // create the actors for the players (below the cards)
+    playerActors = new PlayerActor[numberOfPlayers];
+    for (int playerNumber = 0; playerNumber < numberOfPlayers; playerNumber++) {
+      PlayerActor playerActor = new PlayerActor(playerNumber);
+      playerActors[playerNumber] = playerActor;
+      stage.addActor(playerActor);
+    }
+
+    // the cards are split into layers so the cards that cannot be seen are skipped cheaply (the
+    // deck and discard pile only draw their top card and are never touched)
+    cardDeckGroup.setTouchable(Touchable.disabled);
+    discardPileGroup.setTouchable(Touchable.disabled);
+    splitCardsGroup.setVisible(false);
+    stage.addActor(cardDeckGroup);
+    stage.addActor(discardPileGroup);
+    stage.addActor(cardsGroup);
+    stage.addActor(splitCardsGroup);
+
+    // create the actors for the cards (the cards of a restored game may already be in the hands
+    // or the discard pile, the cards in the hands are moved to the cards layer when they are laid
+    // out)
+    List<Card> cards = new ArrayList<>(CardDeck.NUMBER_OF_CARDS_IN_FULL_DECK);
+    cards.addAll(game.getCardDeck().getUndealtCards());
+    for (int playerNumber = 0; playerNumber < numberOfPlayers; playerNumber++) {
+      cards.addAll(game.getPlayers().get(playerNumber).getCards());
+    }
+    for (int i = 0; i < cards.size(); i++) {
+      cardDeckGroup.addActor(createCardActor(cards.get(i)));
+    }
+    // the cards that are not in the card deck or the hands have been discarded
+    for (Card.Rank rank : Card.Rank.values()) {
+      for (Card.Suit suit : Card.Suit.values()) {
+        Card card = new Card(rank, suit);
+        if (cardActors.get(card) == null) {
+          discardPileGroup.addActor(createCardActor(card));
+        }
+      }
     }
 
     // create the actors for the split cards
@@ -252,7 +583,6 @@ public class GameStageScreen extends StageScreen implements EventListener {
       Card.Rank.FOUR, Card.Rank.FIVE, Card.Rank.SIX, Card.Rank.SEVEN}) {
       // TODO need images for split cards
       CardActor cardActor = new CardActor(new Card(rank, Card.Suit.CLUBS));
-      cardActor.setVisible(false);
       final int finalSplitValue = splitValue;
       cardActor.addListener(new ClickListener() {
         @Override
@@ -261,100 +591,161 @@ public class GameStageScreen extends StageScreen implements EventListener {
         }
       });
       splitCardActors[splitValue++ - 1] = cardActor;
-      stage.addActor(cardActor);
-    }
-
-    // create the actors for the players
-    playerActors = new PlayerActor[numberOfPlayers];
-    for (int playerNumber = 0; playerNumber < numberOfPlayers; playerNumber++) {
-      PlayerActor playerActor = new PlayerActor(playerNumber);
-      playerActors[playerNumber] = playerActor;
-      stage.addActor(playerActor);
+      splitCardsGroup.addActor(cardActor);
     }
 
-    mainMenuLabel = new Label("Main Menu", new LabelStyle(new BitmapFont(true), Color.GOLD));
+    mainMenuLabel = maurersMarblesGame.createLabel("Main Menu", FontRegistry.BOLD, 16.0f,
+        Color.GOLD);
     mainMenuLabel.setPosition(0, 0);
     stage.addActor(mainMenuLabel);
     mainMenuLabel.addListener(new ClickListener() {
       @Override
       public void clicked(InputEvent event, float x, float y) {
-        maurersMarblesGame.setScreen(new MainMenuStageScreen(maurersMarblesGame));
+        // the game is abandoned, so it must not be restored from the main menu
+        deleteSnapshot();
+        maurersMarblesGame.setScreen(maurersMarblesGame.getScreenManager().getMainMenuScreen());
       }
     });
 
   }
 
   protected void clickedCard(Card card) {
-    if (waitForUserInput && game.getPlayers().get(USER_PLAYER_NUMBER).getCards().contains(card)) {
+    if (isWaitingForUserInput() && getUserPlaySelector().legalPlayIndex.isLegalPrefix(card,
+        UserPlay.NO_MARBLE, UserPlay.NO_SPLIT_VALUE)) {
       setSelectedCard(card);
+      updateMarbleHighlights();
     }
   }
 
   protected void clickedMarble(int playerNumber, int marbleNumber) {
 
-    if (!waitForUserInput) {
+    if (!isWaitingForUserInput() || selectedCard == NO_CARD) {
       return;
     }
 
-    if (selectedCard != NO_CARD) {
-
-      UserPlaySelector userPlaySelector = (UserPlaySelector) game.getPlayers()
-          .get(USER_PLAYER_NUMBER).getPlaySelector();
+    UserPlaySelector userPlaySelector = getUserPlaySelector();
+    Marble marble = game.getPlayers().get(playerNumber).getMarbles().get(marbleNumber);
+    int splitValue = getEffectiveSplitValue();
 
-      UserPlay userPlay;
-      if (selectedCard.getRank().equals(Card.Rank.JACK)
-          || (selectedCard.getRank().equals(Card.Rank.SEVEN) && selectedSplitValue != 7)) {
+    // the plays were validated when they became available, so the click is a single lookup
+    Play play;
+    if (isTwoMarbleInput(splitValue)) {
 
-        if (selectedMarble1 == UserPlay.NO_MARBLE) {
-          selectedMarble1 = game.getPlayers().get(playerNumber).getMarbles().get(marbleNumber);
-          return;
+      if (selectedMarble1 == UserPlay.NO_MARBLE || selectedMarble1 == marble) {
+        if (selectedMarble1 == marble) {
+          selectedMarble1 = UserPlay.NO_MARBLE;
+        } else if (userPlaySelector.legalPlayIndex.isLegalPrefix(selectedCard, marble,
+            splitValue)) {
+          selectedMarble1 = marble;
         }
-
-        selectedMarble2 = game.getPlayers().get(playerNumber).getMarbles().get(marbleNumber);
-        userPlay = UserPlay.builder(0, selectedCard, selectedMarble1)
-            .setMarble2(selectedMarble2)
-            .setSplitValue1(selectedSplitValue)
-            .build();
-
-      } else {
-        selectedMarble1 = game.getPlayers().get(playerNumber).getMarbles().get(marbleNumber);
-        userPlay = UserPlay.builder(0, selectedCard, selectedMarble1).build();
+        updateMarbleHighlights();
+        return;
       }
 
-      try {
-        Play play = game.validate(userPlay);
-        waitForUserInput = false;
-        userPlaySelector.setSelectedPlay(play);
-        userPlaySelector.plays = null;
-        resetUserInput();
-        game.advance();
-      } catch (InvalidPlayException ex) {
-        // TODO display message to user
-        resetUserInput();
-      }
+      selectedMarble2 = marble;
+      play = userPlaySelector.legalPlayIndex.get(selectedCard, selectedMarble1, selectedMarble2,
+          splitValue);
 
+    } else {
+      play = userPlaySelector.legalPlayIndex.get(selectedCard, marble, UserPlay.NO_MARBLE,
+          splitValue);
+    }
+
+    if (play == null) {
+      // not a legal play (the legal marbles are highlighted)
+      selectedMarble2 = UserPlay.NO_MARBLE;
+      return;
     }
 
+    waitForUserInput = false;
+    userPlaySelector.setSelectedPlay(play);
+    userPlaySelector.plays = null;
+    userPlaySelector.legalPlayIndex.clear();
+    resetUserInput();
+    gameLogicExecutor.advance();
+
   }
 
   protected void clickedSplitCard(int splitValue) {
-    if (waitForUserInput) {
+    if (isWaitingForUserInput()) {
       selectedSplitValue = splitValue;
-      for (CardActor cardActor : splitCardActors) {
-        cardActor.setVisible(false);
-      }
+      splitCardsGroup.setVisible(false);
+      updateMarbleHighlights();
+    }
+  }
+
+  /**
+   * Returns the split value for the current user input. A seven without a selected split value is
+   * played on a single marble.
+   *
+   * @return the split value for the current user input
+   */
+  protected int getEffectiveSplitValue() {
+    if (selectedCard == NO_CARD || !selectedCard.getRank().equals(Card.Rank.SEVEN)) {
+      return UserPlay.NO_SPLIT_VALUE;
     }
+    return selectedSplitValue == UserPlay.NO_SPLIT_VALUE ? LegalPlayIndex.FULL_SPLIT_VALUE
+        : selectedSplitValue;
+  }
+
+  /**
+   * Returns whether or not the selected card needs two marbles (a jack or a split seven).
+   *
+   * @param splitValue the split value for the current user input
+   * @return whether or not the selected card needs two marbles
+   */
+  protected boolean isTwoMarbleInput(int splitValue) {
+    return selectedCard.getRank().equals(Card.Rank.JACK)
+        || (selectedCard.getRank().equals(Card.Rank.SEVEN)
+        && splitValue != LegalPlayIndex.FULL_SPLIT_VALUE);
+  }
+
+  /**
+   * Creates the actor for the given card and adds it to the table of card actors.
+   *
+   * @param card the card
+   * @return the actor for the given card
+   */
+  protected CardActor createCardActor(final Card card) {
+    CardActor cardActor = new CardActor(card);
+    cardActor.addListener(new ClickListener() {
+      @Override
+      public void clicked(InputEvent event, float x, float y) {
+        clickedCard(card);
+      }
+    });
+    cardActors.put(card, cardActor);
+    return cardActor;
+  }
+
+  /**
+   * Returns the play selector for the user.
+   *
+   * @return the play selector for the user
+   */
+  protected UserPlaySelector getUserPlaySelector() {
+    return userPlaySelector;
+  }
+
+  /**
+   * Returns whether or not the game is waiting for user input. The user play selector is called on
+   * the game logic thread, so the input is only accepted once the game logic thread is idle.
+   *
+   * @return whether or not the game is waiting for user input
+   */
+  protected boolean isWaitingForUserInput() {
+    return waitForUserInput && gameLogicExecutor.isIdle();
   }
 
   protected Action getActionToDealCard(DealtCardGameEvent dealtCardGameEvent,
       final boolean faceDown) {
 
     Card card = dealtCardGameEvent.getCard();
-    final CardActor cardActor = cardActors.get(card.toString());
+    CardActor cardActor = cardActors.get(card);
 
     Image boardSpaceImage = boardActor.boardSpaceImages[game.getBoard().getHomeMinBoardIndex(
         dealtCardGameEvent.getRecipientPlayerNumber()) + 1];
-    Vector2 stageCoordinates = boardActor.localToStageCoordinates(new Vector2(
+    Vector2 stageCoordinates = boardActor.localToStageCoordinates(tmpVector2.set(
         boardSpaceImage.getX() + (boardSpaceImage.getWidth() / 2.0f),
         boardSpaceImage.getY() + (boardSpaceImage.getHeight() / 2.0f)));
 
@@ -362,24 +753,16 @@ public class GameStageScreen extends StageScreen implements EventListener {
     float toY = stageCoordinates.y - (cardActor.getHeight() / 2.0f);
 
     // apply a minor random rotation
-    float toAngle = (float) (Math.random() * 20.0f * 2.0f) - 20.0f;
+    float toAngle = (random.nextFloat() * 20.0f * 2.0f) - 20.0f;
 
     // apply random x,y offset
-    toX += (float) ((Math.random() - 0.5f) * cardActor.getWidth() * 0.25f);
-    toY += (float) ((Math.random() - 0.5f) * cardActor.getWidth() * 0.25f);
+    toX += (random.nextFloat() - 0.5f) * cardActor.getWidth() * 0.25f;
+    toY += (random.nextFloat() - 0.5f) * cardActor.getWidth() * 0.25f;
 
     SequenceAction sequenceAction = Actions.sequence();
+    sequenceAction.addAction(Actions.run(cardActor.getToFrontRunnable(faceDown)));
 
-    RunnableAction runnableAction = Actions.run(new Runnable() {
-      @Override
-      public void run() {
-        cardActor.toFront();
-        cardActor.setFaceDown(faceDown);
-      }
-    });
-    sequenceAction.addAction(runnableAction);
-
-    ParallelAction parallelAction = new ParallelAction();
+    ParallelAction parallelAction = Actions.parallel();
 
     MoveToAction moveToAction = Actions.action(MoveToAction.class);
     moveToAction.setPosition(toX, toY);
@@ -409,7 +792,7 @@ public class GameStageScreen extends StageScreen implements EventListener {
         .getPlayerNumber()][movedMarbleGameEvent.getMarbleNumber()];
     marbleActor.toFront();
 
-    ParallelAction parallelAction = new ParallelAction();
+    ParallelAction parallelAction = Actions.parallel();
 
     MoveToAction moveToAction = Actions.action(MoveToAction.class);
     moveToAction.setPosition(toX, toY);
@@ -429,29 +812,23 @@ public class GameStageScreen extends StageScreen implements EventListener {
   }
 
   protected Action getActionToPlayCard(PlayedCardGameEvent playedCardGameEvent,
-      final boolean faceDown) {
+      boolean faceDown) {
+    return getActionToPlayCard(playedCardGameEvent.getCard(), faceDown);
+  }
 
-    Card card = playedCardGameEvent.getCard();
-    final CardActor cardActor = cardActors.get(card.toString());
+  protected Action getActionToPlayCard(Card card, boolean faceDown) {
+
+    CardActor cardActor = cardActors.get(card);
 
     // TODO update to include random offsets in discard pile?
-    // TODO determine where to get the discard pile rectangle
-    Rectangle rectangleTo = new Rectangle(0, 0, 0, 0);
+    Rectangle rectangleTo = discardPileRectangle;
     float toX = rectangleTo.getX();
     float toY = rectangleTo.getY();
 
     SequenceAction sequenceAction = Actions.sequence();
+    sequenceAction.addAction(Actions.run(cardActor.getToFrontRunnable(faceDown)));
 
-    RunnableAction runnableAction = Actions.run(new Runnable() {
-      @Override
-      public void run() {
-        cardActor.toFront();
-        cardActor.setFaceDown(faceDown);
-      }
-    });
-    sequenceAction.addAction(runnableAction);
-
-    ParallelAction parallelAction = new ParallelAction();
+    ParallelAction parallelAction = Actions.parallel();
 
     MoveToAction moveToAction = Actions.action(MoveToAction.class);
     moveToAction.setPosition(toX, toY);
@@ -471,14 +848,7 @@ public class GameStageScreen extends StageScreen implements EventListener {
     parallelAction.addAction(rotateToAction);
 
     sequenceAction.addAction(parallelAction);
-
-    runnableAction = Actions.run(new Runnable() {
-      @Override
-      public void run() {
-        discardPile.add(cardActor);
-      }
-    });
-    sequenceAction.addAction(runnableAction);
+    sequenceAction.addAction(Actions.run(cardActor.discardRunnable));
 
     return sequenceAction;
 
@@ -486,8 +856,7 @@ public class GameStageScreen extends StageScreen implements EventListener {
 
   protected final Color getColorForPlayer(int playerNumber) {
     // TODO move elsewhere
-    Color[] playerColors = new Color[]{Color.BLUE, Color.GREEN, Color.RED, Color.YELLOW};
-    return playerColors[playerNumber];
+    return PLAYER_COLORS[playerNumber];
   }
 
   protected void handleCannotPlayGameEvent(CannotPlayGameEvent cannotPlayGameEvent) {
@@ -497,82 +866,53 @@ public class GameStageScreen extends StageScreen implements EventListener {
 
   protected void handleExitedStateGameEvent(ExitedStateGameEvent exitedStateGameEvent) {
 
-    SequenceAction sequenceAction = new SequenceAction();
+    SequenceAction sequenceAction = Actions.sequence();
+
+    // the events are only handled while the game logic thread is idle, so the recording ends
+    // between two advances of the game here (only the length is kept, the recording is copied
+    // when the game is saved)
+    if (gameRecorder != null) {
+      recordingLength = gameRecorder.getLength();
+    }
+
+    // the step is mixed into the seed, so the randomness for a step does not depend on how the
+    // step was reached (a replay that seeks to a step is shown the same way)
+    random.setSeed(seed + stepNumber);
+    stepNumber++;
+
+    // create the actions for the events that were fired since the last state change (the dealt
+    // cards are only shown when the dealer is determined or the cards are dealt, and the other
+    // events only when a player's turn is exited)
+    queuedEventsSequenceAction = sequenceAction;
+    exitedState = exitedStateGameEvent.getState();
+    boolean dealing = exitedState == State.DETERMINE_DEALER || exitedState == State.DEAL_CARDS;
+    for (int i = 0; i < queuedEvents.size; i++) {
+      Event queuedEvent = queuedEvents.get(i);
+      if (queuedEvent instanceof DealtCardGameEvent ? dealing : exitedState == State.PLAYER_TURN) {
+        queuedEventDispatcher.dispatch(queuedEvent);
+      }
+    }
+    queuedEventsSequenceAction = null;
+    exitedState = null;
 
     switch (exitedStateGameEvent.getState()) {
 
       case DETERMINE_DEALER:
       // falls through
       case DEAL_CARDS: {
-
-        for (Event queuedEvent : queuedEvents) {
-          if (queuedEvent instanceof DealtCardGameEvent) {
-            sequenceAction.addAction(getActionToDealCard((DealtCardGameEvent) queuedEvent,
-                exitedStateGameEvent.getState().equals(State.DEAL_CARDS)));
-          }
-        }
-
-        RunnableAction runnableAction = new RunnableAction();
-        runnableAction.setRunnable(new Runnable() {
-          @Override
-          public void run() {
-            updateCardActors();
-            // TODO add animation to move cards to player areas?
-            game.advance();
-          }
-        });
-        sequenceAction.addAction(runnableAction);
-
+        sequenceAction.addAction(Actions.run(dealtCardsRunnable));
         break;
-
       }
       case PLAYER_TURN: {
 
-        for (Event queuedEvent : queuedEvents) {
-          if (queuedEvent instanceof CannotPlayGameEvent) {
-            ParallelAction parallelAction = Actions.parallel();
-            for (Card card : cannotPlayPlayerCards) {
-              parallelAction.addAction(getActionToPlayCard(new PlayedCardGameEvent(game,
-                  ((CannotPlayGameEvent) queuedEvent).getPlayerNumber(), card),
-                  ((CannotPlayGameEvent) queuedEvent).getPlayerNumber() != USER_PLAYER_NUMBER));
-            }
-            cannotPlayPlayerCards.clear();
-            sequenceAction.addAction(parallelAction);
-          } else if (queuedEvent instanceof MovedMarbleGameEvent) {
-            sequenceAction.addAction(getActionToMoveMarble((MovedMarbleGameEvent) queuedEvent));
-          } else if (queuedEvent instanceof PlayedCardGameEvent) {
-            sequenceAction.addAction(getActionToPlayCard((PlayedCardGameEvent) queuedEvent, false));
-          }
-        }
-
-        if (exitedStateGameEvent.getState() == State.PLAYER_TURN && waitForUserInput) {
+        if (waitForUserInput) {
 
           updateCardActors();
 
-          for (Card card : game.getPlayers().get(USER_PLAYER_NUMBER).getCards()) {
-            final Card finalCard = card;
-            CardActor cardActor = cardActors.get(card.toString());
-            cardActor.clearListeners();
-            cardActor.addListener(new ClickListener() {
-              @Override
-              public void clicked(InputEvent event, float x, float y) {
-                clickedCard(finalCard);
-              }
-            });
-
-          }
-
         } else {
 
           updateCardActors();
-          RunnableAction runnableAction = new RunnableAction();
-          runnableAction.setRunnable(new Runnable() {
-            @Override
-            public void run() {
-              game.advance();
-            }
-          });
-          sequenceAction.addAction(runnableAction);
+          sequenceAction.addAction(Actions.run(advanceGameRunnable));
 
         }
 
@@ -580,7 +920,16 @@ public class GameStageScreen extends StageScreen implements EventListener {
       }
 
       case GAME_OVER: {
-        maurersMarblesGame.setScreen(new GameOverStageScreen(maurersMarblesGame, gameStats));
+        if (ponderer != null) {
+          Gdx.app.log("Ponderer", ponderer.getNumberOfHits() + " hits, "
+              + ponderer.getNumberOfMisses() + " misses");
+        }
+        // a replay stays on the final board
+        if (gameReplay == null) {
+          deleteSnapshot();
+          saveReplay();
+          maurersMarblesGame.setScreen(new GameOverStageScreen(maurersMarblesGame, gameStats));
+        }
         break;
       }
 
@@ -590,13 +939,13 @@ public class GameStageScreen extends StageScreen implements EventListener {
 
     // add the action
     stage.addAction(sequenceAction);
-    Gdx.graphics.requestRendering();
+    requestRender();
 
   }
 
   protected void handleShuffledCardDeckGameEvent(
       ShuffledCardDeckGameEvent shuffledCardDeckGameEvent) {
-    discardPile.clear();
+    // the shuffled cards are moved from the discard pile to the card deck
     updateCardActors();
   }
 
@@ -610,18 +959,22 @@ public class GameStageScreen extends StageScreen implements EventListener {
 
     if (selectedCard != NO_CARD && selectedCard.getRank().equals(Card.Rank.SEVEN)) {
 
-      CardActor selectedCardActor = cardActors.get(selectedCard.toString());
+      CardActor selectedCardActor = cardActors.get(selectedCard);
       float y = selectedCardActor.getY();
       float centerX = selectedCardActor.getX() + (selectedCardActor.getWidth() / 2.0f);
       // vertical stack
+      LegalPlayIndex legalPlayIndex = getUserPlaySelector().legalPlayIndex;
       for (int i = splitCardActors.length - 1; i >= 0; i--) {
         CardActor cardActor = splitCardActors[i];
         float newX = centerX;
         float newY = y - (i * cardActor.getHeight() * 0.20f);
         cardActor.setPosition(newX - (cardActor.getWidth() / 2.0f), newY);
-        cardActor.setVisible(true);
+        // only show the split values that lead to a legal play
+        cardActor.setVisible(legalPlayIndex.isLegalPrefix(selectedCard, UserPlay.NO_MARBLE,
+            i + 1));
         cardActor.toFront();
       }
+      splitCardsGroup.setVisible(true);
       // spiral
       /*float width = (selectedCardActor.getWidth()
           + (4 * selectedCardActor.getWidth() * (1.0f - CARD_OVERLAP))) / 2.0f;
@@ -639,98 +992,278 @@ public class GameStageScreen extends StageScreen implements EventListener {
       }*/
 
     } else {
-      for (CardActor cardActor : splitCardActors) {
-        cardActor.setVisible(false);
-      }
+      splitCardsGroup.setVisible(false);
     }
 
     // reset all cards to not be highlighted
-    for (Card playerCard : game.getPlayers().get(USER_PLAYER_NUMBER).getCards()) {
-      cardActors.get(playerCard.toString()).setSelected(false);
+    List<Card> userCards = game.getPlayers().get(USER_PLAYER_NUMBER).getCards();
+    for (int i = 0; i < userCards.size(); i++) {
+      cardActors.get(userCards.get(i)).setSelected(false);
     }
 
     // update the selected card to be highlighted
     if (selectedCard != NO_CARD) {
-      cardActors.get(selectedCard.toString()).setSelected(true);
+      cardActors.get(selectedCard).setSelected(true);
     }
 
   }
 
-  protected void resetUserInput() {
-    setSelectedCard(NO_CARD);
-    selectedMarble1 = UserPlay.NO_MARBLE;
-    selectedMarble2 = UserPlay.NO_MARBLE;
-    selectedSplitValue = UserPlay.NO_SPLIT_VALUE;
-  }
-
-  public void updateBoardActors() {
-    boardActor.update();
-  }
+  /**
+   * Registers the handlers for the game events, for the queued events (which are turned into
+   * actions when the game state changes) and for the events handled on the game logic thread.
+   */
+  protected void registerEventHandlers() {
 
-  public void updateCardActors() {
+    // the cards must be captured before the game discards them
+    logicThreadEventDispatcher.register(CannotPlayGameEvent.class,
+        new EventHandler<CannotPlayGameEvent>() {
+          @Override
+          public void handleEvent(CannotPlayGameEvent event) {
+            handleCannotPlayGameEvent(event);
+          }
+        });
 
-    // update the player cards
-    for (int playerNumber = 0; playerNumber < game.getNumberOfPlayers(); playerNumber++) {
+    eventDispatcher.register(ExitedStateGameEvent.class,
+        new EventHandler<ExitedStateGameEvent>() {
+          @Override
+          public void handleEvent(ExitedStateGameEvent event) {
+            handleExitedStateGameEvent(event);
+          }
+        });
+    eventDispatcher.register(ShuffledCardDeckGameEvent.class,
+        new EventHandler<ShuffledCardDeckGameEvent>() {
+          @Override
+          public void handleEvent(ShuffledCardDeckGameEvent event) {
+            handleShuffledCardDeckGameEvent(event);
+          }
+        });
+    eventDispatcher.setDefaultEventHandler(new EventHandler<Event>() {
+      @Override
+      public void handleEvent(Event event) {
+        queuedEvents.add(event);
+      }
+    });
 
-      Rectangle playerRectangle = screenLayout.getBoundsForPlayer(playerNumber);
-      cardHandView.update(playerRectangle.getWidth(), playerRectangle.getHeight());
+    queuedEventDispatcher.register(DealtCardGameEvent.class,
+        new EventHandler<DealtCardGameEvent>() {
+          @Override
+          public void handleEvent(DealtCardGameEvent event) {
+            queuedEventsSequenceAction.addAction(getActionToDealCard(event,
+                exitedState == State.DEAL_CARDS));
+          }
+        });
+    queuedEventDispatcher.register(CannotPlayGameEvent.class,
+        new EventHandler<CannotPlayGameEvent>() {
+          @Override
+          public void handleEvent(CannotPlayGameEvent event) {
+            ParallelAction parallelAction = Actions.parallel();
+            for (int i = 0; i < cannotPlayPlayerCards.size(); i++) {
+              parallelAction.addAction(getActionToPlayCard(cannotPlayPlayerCards.get(i),
+                  event.getPlayerNumber() != USER_PLAYER_NUMBER));
+            }
+            cannotPlayPlayerCards.clear();
+            queuedEventsSequenceAction.addAction(parallelAction);
+          }
+        });
+    queuedEventDispatcher.register(MovedMarbleGameEvent.class,
+        new EventHandler<MovedMarbleGameEvent>() {
+          @Override
+          public void handleEvent(MovedMarbleGameEvent event) {
+            queuedEventsSequenceAction.addAction(getActionToMoveMarble(event));
+          }
+        });
+    queuedEventDispatcher.register(PlayedCardGameEvent.class,
+        new EventHandler<PlayedCardGameEvent>() {
+          @Override
+          public void handleEvent(PlayedCardGameEvent event) {
+            queuedEventsSequenceAction.addAction(getActionToPlayCard(event, false));
+          }
+        });
+
+  }
+
+  protected void resetUserInput() {
+    setSelectedCard(NO_CARD);
+    selectedMarble1 = UserPlay.NO_MARBLE;
+    selectedMarble2 = UserPlay.NO_MARBLE;
+    selectedSplitValue = UserPlay.NO_SPLIT_VALUE;
+    updateMarbleHighlights();
+  }
 
-      if (playerNumber == 0) {
+  /**
+   * Dims the marbles that cannot be selected for the current user input (using the legal play
+   * index). All of the marbles are shown normally when there is no card selected.
+   */
+  protected void updateMarbleHighlights() {
+
+    boolean highlight = waitForUserInput && selectedCard != NO_CARD;
+    LegalPlayIndex legalPlayIndex = highlight ? getUserPlaySelector().legalPlayIndex : null;
+    int splitValue = getEffectiveSplitValue();
+    boolean secondMarble = highlight && isTwoMarbleInput(splitValue)
+        && selectedMarble1 != UserPlay.NO_MARBLE;
+
+    for (int playerNumber = 0; playerNumber < marbleActors.length; playerNumber++) {
+      List<Marble> marbles = game.getPlayers().get(playerNumber).getMarbles();
+      for (int marbleNumber = 0; marbleNumber < marbles.size(); marbleNumber++) {
+        Marble marble = marbles.get(marbleNumber);
+        boolean legal;
+        if (!highlight) {
+          legal = true;
+        } else if (secondMarble) {
+          legal = marble == selectedMarble1 || legalPlayIndex.get(selectedCard, selectedMarble1,
+              marble, splitValue) != null;
+        } else {
+          legal = legalPlayIndex.isLegalPrefix(selectedCard, marble, splitValue);
+        }
+        marbleActors[playerNumber][marbleNumber].setDimmed(!legal);
+      }
+    }
+
+  }
+
+  public void updateBoardActors() {
+    boardActor.update();
+  }
+
+  /**
+   * Lays out the card actors for the current game state. Only the parts of the layout that changed
+   * are recomputed: a hand is only laid out again when its cards or its bounds changed (and then
+   * only the cards that moved are repositioned), the card deck only positions the cards that were
+   * added to it, and the discard pile is only repositioned when the layout is invalidated.
+   */
+  public void updateCardActors() {
+
+    // update the player cards
+    for (int playerNumber = 0; playerNumber < game.getNumberOfPlayers(); playerNumber++) {
+
+      List<Card> playerCards = game.getPlayers().get(playerNumber).getCards();
+      HandLayout handLayout = handLayouts[playerNumber];
+      boolean boundsChanged = handLayout.update(screenLayout.getBoundsForPlayer(playerNumber),
+          playerCards.size());
+
+      if (playerNumber == USER_PLAYER_NUMBER && handLayout.splitCardBoundsChanged) {
         // update the split cards
-        Rectangle cardRectangle = cardHandView.getBoundsForCard(0, splitCardActors.length,
-            splitCardActors.length);
+        handLayout.splitCardBoundsChanged = false;
         for (CardActor cardActor : splitCardActors) {
-          cardActor.setSize(cardRectangle.getWidth(), cardRectangle.getHeight());
+          cardActor.setSize(handLayout.splitCardWidth, handLayout.splitCardHeight);
         }
       }
 
-      List<Card> playerCards = game.getPlayers().get(playerNumber).getCards();
       for (int cardNumber = 0; cardNumber < playerCards.size(); cardNumber++) {
 
-        // TODO determine max number of cards based on number of players
-        Rectangle cardRectangle = cardHandView.getBoundsForCard(cardNumber, playerCards.size(), 5);
-
         Card card = playerCards.get(cardNumber);
+        CardActor cardActor = cardActors.get(card);
+        if (!boundsChanged && cardActor.laidOut && handLayout.isCardAt(cardNumber, card)) {
+          // the card has not moved since it was last laid out
+          continue;
+        }
 
-        CardActor cardActor = cardActors.get(card.toString());
-        cardActor.setPosition(playerRectangle.getX() + cardRectangle.getX(),
-            playerRectangle.getY() + cardRectangle.getY());
-        cardActor.setSize(cardRectangle.getWidth(), cardRectangle.getHeight());
+        if (cardActor.getParent() != cardsGroup) {
+          cardsGroup.addActor(cardActor);
+        }
+        float[] cardBounds = handLayout.cardBounds;
+        int offset = cardNumber * 4;
+        cardActor.setBounds(cardBounds[offset], cardBounds[offset + 1], cardBounds[offset + 2],
+            cardBounds[offset + 3]);
         cardActor.setOrigin(Align.center);
         cardActor.setRotation(0.0f);
-
         cardActor.setFaceDown(playerNumber != USER_PLAYER_NUMBER);
+        cardActor.laidOut = true;
 
       }
 
+      handLayout.setCards(playerCards);
+
     }
 
-    // update the discard pile
-    Rectangle rectangle = new Rectangle(0, 0, 0, 0);
-    for (CardActor cardActor : discardPile) {
-      cardActor.setPosition(rectangle.getX(), rectangle.getY());
-      cardActor.setSize(rectangle.getWidth(), rectangle.getHeight());
-      cardActor.setOrigin(Align.center);
-      cardActor.setRotation(0.0f);
+    // update the discard pile (the discarded cards are moved into place by the animations)
+    Rectangle rectangle = discardPileRectangle;
+    if (pileLayoutInvalid) {
+      for (int i = 0; i < discardPileGroup.getChildren().size; i++) {
+        Actor cardActor = discardPileGroup.getChildren().get(i);
+        cardActor.setBounds(rectangle.getX(), rectangle.getY(), rectangle.getWidth(),
+            rectangle.getHeight());
+        cardActor.setOrigin(Align.center);
+        cardActor.setRotation(0.0f);
+      }
     }
 
     // update the card deck (undealt cards)
-    rectangle = new Rectangle(0, 0, 0, 0);
-    for (Card card : game.getCardDeck().getUndealtCards()) {
-      CardActor cardActor = cardActors.get(card.toString());
-      cardActor.setPosition(rectangle.getX(), rectangle.getY());
-      cardActor.setSize(rectangle.getWidth(), rectangle.getHeight());
+    rectangle = cardDeckRectangle;
+    List<Card> undealtCards = game.getCardDeck().getUndealtCards();
+    for (int i = 0; i < undealtCards.size(); i++) {
+      CardActor cardActor = cardActors.get(undealtCards.get(i));
+      if (cardActor.getParent() == cardDeckGroup && !pileLayoutInvalid) {
+        continue;
+      }
+      cardDeckGroup.addActor(cardActor);
+      cardActor.setBounds(rectangle.getX(), rectangle.getY(), rectangle.getWidth(),
+          rectangle.getHeight());
       cardActor.setOrigin(Align.center);
       cardActor.setRotation(0.0f);
       cardActor.setFaceDown(true);
+      cardActor.laidOut = false;
     }
 
+    pileLayoutInvalid = false;
+
+  }
+
+  /**
+   * Marks the whole card layout to be recomputed by the next call to updateCardActors() (after
+   * the screen layout changed).
+   */
+  public void invalidateCardLayout() {
+    for (HandLayout handLayout : handLayouts) {
+      handLayout.invalidate();
+    }
+    pileLayoutInvalid = true;
+  }
+
+  /**
+   * Sets the culling areas of the card layers to the bounds of the screen layout (the board, the
+   * players, the card deck and the discard pile).
+   */
+  public void updateCullingAreas() {
+
+    // the bounds are stored as min x, min y, max x and max y
+    Rectangle rectangle = screenLayout.getBoundsForBoard();
+    float[] bounds = new float[]{rectangle.getX(), rectangle.getY(),
+      rectangle.getX() + rectangle.getWidth(), rectangle.getY() + rectangle.getHeight()};
+    for (int playerNumber = 0; playerNumber < game.getNumberOfPlayers(); playerNumber++) {
+      mergeBounds(bounds, screenLayout.getBoundsForPlayer(playerNumber));
+    }
+    mergeBounds(bounds, cardDeckRectangle);
+    mergeBounds(bounds, discardPileRectangle);
+
+    float width = bounds[2] - bounds[0];
+    float height = bounds[3] - bounds[1];
+    cardsGroup.setCullingBounds(bounds[0], bounds[1], width, height);
+    cardDeckGroup.setCullingBounds(bounds[0], bounds[1], width, height);
+    discardPileGroup.setCullingBounds(bounds[0], bounds[1], width, height);
+    splitCardsGroup.setCullingBounds(bounds[0], bounds[1], width, height);
+
+  }
+
+  /**
+   * Extends the given bounds (min x, min y, max x and max y) to include the given rectangle.
+   *
+   * @param bounds the bounds
+   * @param rectangle the rectangle
+   */
+  protected static void mergeBounds(float[] bounds, Rectangle rectangle) {
+    bounds[0] = Math.min(bounds[0], rectangle.getX());
+    bounds[1] = Math.min(bounds[1], rectangle.getY());
+    bounds[2] = Math.max(bounds[2], rectangle.getX() + rectangle.getWidth());
+    bounds[3] = Math.max(bounds[3], rectangle.getY() + rectangle.getHeight());
   }
 
   public void updateMarbleActors() {
 
-    for (Player player : game.getPlayers()) {
-      for (Marble marble : player.getMarbles()) {
+    for (int playerNumber = 0; playerNumber < game.getNumberOfPlayers(); playerNumber++) {
+      Player player = game.getPlayers().get(playerNumber);
+      for (int marbleNumber = 0; marbleNumber < player.getMarbles().size(); marbleNumber++) {
+        Marble marble = player.getMarbles().get(marbleNumber);
         Rectangle rectangle = boardView.getBoundsForMarble(marble.getBoardIndex());
         MarbleActor marbleActor = marbleActors[player.getPlayerNumber()][marble.getMarbleNumber()];
         marbleActor.setPosition(rectangle.getX(), rectangle.getY());
@@ -751,59 +1284,302 @@ public class GameStageScreen extends StageScreen implements EventListener {
 
   @Override
   public void handleEvent(Event event) {
-    if (event instanceof CannotPlayGameEvent) {
-      handleCannotPlayGameEvent((CannotPlayGameEvent) event);
-      queuedEvents.add(event);
-    } else if (event instanceof ExitedStateGameEvent) {
-      handleExitedStateGameEvent((ExitedStateGameEvent) event);
-    } else if (event instanceof ShuffledCardDeckGameEvent) {
-      handleShuffledCardDeckGameEvent((ShuffledCardDeckGameEvent) event);
-    } else {
-      queuedEvents.add(event);
-    }
+    eventDispatcher.dispatch(event);
   }
 
   @Override
   public void pause() {
-    // TODO
+    // the application may be killed while it is paused, so the game is saved to be restored
+    paused = true;
+    if (gameReplay == null) {
+      saveSnapshot();
+      saveReplay();
+    }
+  }
+
+  /**
+   * Returns the local file the snapshot of the game is written to (or null if there is no local
+   * storage).
+   *
+   * @return the local file the snapshot of the game is written to (or null if there is no local
+   *     storage)
+   */
+  protected static FileHandle getSnapshotFile() {
+    return Gdx.files.isLocalStorageAvailable() ? Gdx.files.local(SNAPSHOT_FILE_NAME) : null;
+  }
+
+  /**
+   * Writes a snapshot of the game to the snapshot file: the AI difficulty followed by the
+   * recording of the inputs of the game up to the last state change that was handled. This does
+   * not wait for an advance in progress (which is run again when the game is restored).
+   */
+  public void saveSnapshot() {
+    FileHandle fileHandle = getSnapshotFile();
+    if (fileHandle == null) {
+      return;
+    }
+    byte[] recording = gameRecorder.toBytes(recordingLength);
+    byte[] bytes = new byte[recording.length + 1];
+    bytes[0] = (byte) aiDifficulty.ordinal();
+    System.arraycopy(recording, 0, bytes, 1, recording.length);
+    fileHandle.writeBytes(bytes, false);
+  }
+
+  /**
+   * Writes the recording of the game up to the last state change that was handled to the replay
+   * file. This does not wait for an advance in progress.
+   */
+  public void saveReplay() {
+    if (gameRecorder == null || !Gdx.files.isLocalStorageAvailable()) {
+      return;
+    }
+    Gdx.files.local(REPLAY_FILE_NAME).writeBytes(gameRecorder.toBytes(recordingLength), false);
+  }
+
+  /**
+   * Returns the replay used to advance the game.
+   *
+   * @return the replay used to advance the game (or null if the game is not a replay)
+   */
+  public GameReplay getGameReplay() {
+    return gameReplay;
+  }
+
+  /**
+   * Returns the seed for the presentation randomness (a replay of the game uses the same seed).
+   *
+   * @return the seed for the presentation randomness
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Returns whether or not the game is a replay that has replayed all of its records.
+   *
+   * @return whether or not the game is a replay that has replayed all of its records
+   */
+  public boolean isReplayFinished() {
+    return gameReplay != null && gameReplay.isFinished();
+  }
+
+  /**
+   * Returns a new GameStageScreen that continues the replay from the given step (the number of
+   * state changes since the recording started). The replay of the new screen starts at the nearest
+   * keyframe at or before the step (see GameReplay.createAt()) and the actors of the new screen are
+   * laid out from the state of the game at the step, so seeking takes the same time no matter how
+   * far into the game the step is (once the keyframes have been taken). The new screen skips the
+   * animations if this screen does. This screen is not changed and should be disposed by the
+   * caller once the new screen is shown.
+   *
+   * @param stepNumber the step to seek to
+   * @return a new GameStageScreen that continues the replay from the given step
+   */
+  public GameStageScreen seekReplay(int stepNumber) {
+
+    if (gameReplay == null) {
+      throw new IllegalStateException("The game is not a replay");
+    }
+
+    GameReplay seekGameReplay;
+    try {
+      seekGameReplay = gameReplay.createAt(stepNumber);
+    } catch (IOException ex) {
+      throw new GdxRuntimeException(ex);
+    }
+
+    GameStageScreen gameStageScreen = new GameStageScreen(maurersMarblesGame, seekGameReplay);
+    gameStageScreen.setSkipAnimations(skipAnimations);
+    return gameStageScreen;
+
+  }
+
+  /**
+   * Sets whether or not the animations are finished as soon as they are created. A replay that
+   * skips the animations is run to the end (or to the first error) in a single frame.
+   *
+   * @param skipAnimations whether or not the animations are finished as soon as they are created
+   */
+  public void setSkipAnimations(boolean skipAnimations) {
+    this.skipAnimations = skipAnimations;
+    requestRender();
+  }
+
+  /**
+   * Deletes the snapshot file (the game is over, has been abandoned or has been restored, or the
+   * application was resumed and the game has moved on from the snapshot).
+   */
+  public static void deleteSnapshot() {
+    FileHandle fileHandle = getSnapshotFile();
+    if (fileHandle != null && fileHandle.exists()) {
+      fileHandle.delete();
+    }
+  }
+
+  /**
+   * Restores the game saved in the snapshot file by replaying its recording to the end (without
+   * showing it). The replay takes longer the longer the game is, so this does not touch the screen
+   * and can be called on any thread. The snapshot file is deleted once it has been read (the game
+   * is saved again the next time the application is paused).
+   *
+   * @return the restored game (or null if there is no snapshot file or the snapshot is not valid)
+   */
+  public static RestoredGame restoreSnapshot() {
+    FileHandle fileHandle = getSnapshotFile();
+    if (fileHandle == null || !fileHandle.exists()) {
+      return null;
+    }
+    try {
+      byte[] bytes = fileHandle.readBytes();
+      AiDifficulty[] aiDifficulties = AiDifficulty.values();
+      if (bytes.length < 1 || bytes[0] < 0 || bytes[0] >= aiDifficulties.length) {
+        throw new IOException("Invalid AI difficulty");
+      }
+      byte[] recording = new byte[bytes.length - 1];
+      System.arraycopy(bytes, 1, recording, 0, recording.length);
+      // the restored game is never sought, so no keyframes are taken
+      GameReplay gameReplay = new GameReplay(recording, 0);
+      while (!gameReplay.isFinished()) {
+        gameReplay.advance();
+      }
+      return new RestoredGame(aiDifficulties[bytes[0]], gameReplay);
+    } catch (IOException | GdxRuntimeException ex) {
+      Gdx.app.error("GameStageScreen", "Unable to restore the game snapshot", ex);
+      return null;
+    } finally {
+      deleteSnapshot();
+    }
+  }
+
+  /**
+   * Returns a new GameStageScreen for the given restored game. The recording of the game continues
+   * from where the snapshot ended. This must be called on the render thread.
+   *
+   * @param maurersMarblesGame the game for the screen
+   * @param restoredGame the restored game (see restoreSnapshot())
+   * @return a new GameStageScreen for the given restored game
+   */
+  public static GameStageScreen createFromSnapshot(MaurersMarblesGame maurersMarblesGame,
+      RestoredGame restoredGame) {
+    GameReplay gameReplay = restoredGame.gameReplay;
+    return new GameStageScreen(maurersMarblesGame, gameReplay.getGame(),
+        restoredGame.aiDifficulty, null, new GameRecorder(gameReplay));
+  }
+
+  @Override
+  public void dispose() {
+    super.dispose();
+    boardActor.dispose();
+    gameLogicExecutor.dispose();
+    if (ponderer != null) {
+      ponderer.dispose();
+    }
+    if (aiExecutor != null) {
+      aiExecutor.dispose();
+    }
   }
 
   @Override
-  public void render(float delta) {
+  protected void update(float delta) {
+
+    // a manually driven clock waits for the game logic, so each step sees the same events no
+    // matter how long the AI takes
+    if (manualClock) {
+      gameLogicExecutor.awaitIdle();
+    }
+
+    // the game state is only read while the game logic thread is idle
+    if (!gameLogicExecutor.isIdle()) {
+      return;
+    }
+
+    if (layoutPending) {
+      layoutPending = false;
+      updateMarbleActors();
+      updateCardActors();
+    }
 
-    stage.getCamera().update();
-    Gdx.gl.glClearColor(0.75f, 0.75f, 0.75f, 1);
-    Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+    // handle the events fired since the last frame
+    handleEvents();
 
-    stage.act();
-    stage.draw();
+    if (skipAnimations) {
+      // each act finishes one step of every sequence, and the actions advance the game, so this
+      // runs until the game is waiting (for user input or the end of a replay)
+      while (hasActions(stage.getRoot())) {
+        stage.act(SKIP_ANIMATION_DELTA);
+        if (!gameLogicExecutor.isIdle()) {
+          break;
+        }
+        handleEvents();
+      }
+    }
 
   }
 
+  /**
+   * Handles the events fired since they were last handled. This must only be called while the game
+   * logic thread is idle.
+   */
+  protected void handleEvents() {
+    Event event;
+    while ((event = gameLogicExecutor.pollEvent()) != null) {
+      handleEvent(event);
+    }
+  }
+
   @Override
   public void resize(int width, int height) {
 
     super.resize(width, height);
 
-    screenLayout.update(viewport.getWorldWidth(), viewport.getWorldHeight());
-
-    updateBoardActors();
-    updateMarbleActors();
-    updatePlayerActors();
-    updateCardActors();
+    // the layout only depends on the world size (a resize to the same size only updates the
+    // viewport)
+    if (viewport.getWorldWidth() != layoutWorldWidth
+        || viewport.getWorldHeight() != layoutWorldHeight) {
+      layoutWorldWidth = viewport.getWorldWidth();
+      layoutWorldHeight = viewport.getWorldHeight();
+      updateLayout();
+    }
 
     // TODO do we want to keep this logic?
     if (firstResize) {
       firstResize = false;
       // start the game
-      game.advance();
+      gameLogicExecutor.advance();
+    }
+
+  }
+
+  /**
+   * Updates the screen layout for the current world size and lays out all of the actors.
+   */
+  protected void updateLayout() {
+
+    screenLayout.update(layoutWorldWidth, layoutWorldHeight);
+
+    updateBoardActors();
+    updatePlayerActors();
+    updateCullingAreas();
+    invalidateCardLayout();
+    if (gameLogicExecutor.isIdle()) {
+      updateMarbleActors();
+      updateCardActors();
+    } else {
+      layoutPending = true;
     }
 
   }
 
   @Override
   public void resume() {
-    // TODO
+    // the game moves on from the snapshot, so it is deleted (and saved again on the next pause)
+    paused = false;
+    if (gameReplay == null) {
+      deleteSnapshot();
+    }
+    // the frame buffer contents are lost with the GL context
+    boardActor.invalidateCache();
+    requestRender();
   }
 
   @Override
@@ -811,7 +1587,16 @@ public class GameStageScreen extends StageScreen implements EventListener {
     super.show();
   }
 
-  protected class BoardActor extends Group {
+  @Override
+  public void hide() {
+    super.hide();
+    // the screen is only hidden without a pause when the game is left
+    if (!paused && gameReplay == null) {
+      deleteSnapshot();
+    }
+  }
+
+  protected class BoardActor extends Group implements Disposable {
 
     /**
      * The image used as the background for the game board.
@@ -822,20 +1607,54 @@ public class GameStageScreen extends StageScreen implements EventListener {
      * and the value is the image for that board space.
      */
     protected final transient Image[] boardSpaceImages;
+    /**
+     * The frame buffer the background and board spaces are cached in (created when first drawn).
+     */
+    protected transient FrameBuffer frameBuffer;
+    /**
+     * The texture region for the frame buffer.
+     */
+    protected transient TextureRegion frameBufferTextureRegion;
+    /**
+     * Whether or not the frame buffer needs to be redrawn.
+     */
+    protected transient boolean cacheInvalid = true;
+    /**
+     * The matrix used to save the batch projection while the frame buffer is drawn.
+     */
+    protected final transient Matrix4 savedProjectionMatrix = new Matrix4();
+    /**
+     * The y-down projection used to draw into the frame buffer.
+     */
+    protected final transient Matrix4 cacheProjectionMatrix = new Matrix4();
 
     public BoardActor() {
 
-      // create the image for the board background
-      boardBackgroundImage = maurersMarblesGame.createImage("board_background.png");
+      // the board is never rotated or scaled, so the children are drawn without flushing the batch
+      // to push a transform
+      setTransform(false);
+
+      // create the image for the board background (drawn into the cache, not added as a child)
+      boardBackgroundImage = maurersMarblesGame.createImage("board_background");
       boardBackgroundImage.setColor(0.65f, 0.65f, 0.65f, 1);
-      addActor(boardBackgroundImage);
 
-      // create the images for the board spaces
+      // create the images for the board spaces (drawn into the cache, not added as children)
       boardSpaceImages = new Image[game.getBoard().getNumberOfPlayableSpaces()];
       for (int i = 0; i < boardSpaceImages.length; i++) {
-        boardSpaceImages[i] = maurersMarblesGame.createImage("arrow.png");
+        boardSpaceImages[i] = maurersMarblesGame.createImage("arrow");
+      }
+
+      updateColors();
+
+    }
+
+    /**
+     * Sets the colors for the board spaces and redraws the cache.
+     */
+    public void updateColors() {
+
+      for (int i = 0; i < boardSpaceImages.length; i++) {
         boardSpaceImages[i].setColor(0.5f, 0.5f, 0.5f, 1);
-        addActor(boardSpaceImages[i]);
       }
 
       // set the colors for the player board spaces
@@ -850,6 +1669,16 @@ public class GameStageScreen extends StageScreen implements EventListener {
         }
       }
 
+      invalidateCache();
+
+    }
+
+    /**
+     * Marks the cache to be redrawn the next time the board is drawn (after a resize, a color
+     * change or a lost GL context).
+     */
+    public void invalidateCache() {
+      cacheInvalid = true;
     }
 
     public void update() {
@@ -870,118 +1699,419 @@ public class GameStageScreen extends StageScreen implements EventListener {
             - boardView.getAngleForBoardIndex(boardIndex) * 180.0f / (float) Math.PI);
       }
 
+      invalidateCache();
+
     }
 
-  }
+    @Override
+    public void draw(Batch batch, float parentAlpha) {
 
-  protected class CardActor extends Group {
+      if (cacheInvalid) {
+        batch.end();
+        drawCache(batch);
+        batch.begin();
+      }
 
-    Image backImage;
-    Image frontImage;
+      // the background and board spaces are a single quad, then the marbles are drawn on top
+      if (frameBufferTextureRegion != null) {
+        Color color = getColor();
+        batch.setColor(color.r, color.g, color.b, color.a * parentAlpha);
+        batch.draw(frameBufferTextureRegion, getX(), getY(), getWidth(), getHeight());
+      }
+      drawChildren(batch, parentAlpha);
 
-    public CardActor(Card card) {
-      backImage = maurersMarblesGame.createImage("card_back.png");
-      backImage.setColor(Color.SKY);
-      frontImage = maurersMarblesGame.createImage("card_" + card.toString().toLowerCase() + ".png");
-      addActor(backImage);
-      addActor(frontImage);
     }
 
-    public void setFaceDown(boolean faceDown) {
-      if (faceDown) {
-        backImage.setVisible(true);
-        frontImage.setVisible(false);
-      } else {
-        backImage.setVisible(false);
-        frontImage.setVisible(true);
+    /**
+     * Draws the background and board spaces into the frame buffer (recreating the frame buffer if
+     * the size of the board changed). The batch must not be drawing.
+     *
+     * @param batch the batch used to draw the background and board spaces
+     */
+    protected void drawCache(Batch batch) {
+
+      cacheInvalid = false;
+
+      int width = MathUtils.ceil(getWidth());
+      int height = MathUtils.ceil(getHeight());
+      if (width < 1 || height < 1) {
+        return;
       }
-    }
 
-    public void setSelected(boolean selected) {
-      // TODO change to hide/show selected image on top?
-      if (selected) {
-        frontImage.setColor(Color.YELLOW);
-      } else {
-        frontImage.setColor(Color.WHITE);
+      if (frameBuffer == null || frameBuffer.getWidth() != width
+          || frameBuffer.getHeight() != height) {
+        if (frameBuffer != null) {
+          frameBuffer.dispose();
+        }
+        frameBuffer = new FrameBuffer(Pixmap.Format.RGBA8888, width, height, false);
+        // the frame buffer is drawn with the same y-down projection as the stage, so the region
+        // is not flipped
+        frameBufferTextureRegion = new TextureRegion(frameBuffer.getColorBufferTexture());
       }
-    }
 
-    @Override
-    public void setHeight(float height) {
-      super.setHeight(height);
-      backImage.setHeight(height);
-      frontImage.setHeight(height);
+      savedProjectionMatrix.set(batch.getProjectionMatrix());
+      batch.setProjectionMatrix(cacheProjectionMatrix.setToOrtho(0, width, height, 0, 0, 1));
+
+      frameBuffer.begin();
+      Gdx.gl.glClearColor(0, 0, 0, 0);
+      Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+      batch.begin();
+      boardBackgroundImage.draw(batch, 1.0f);
+      for (int boardIndex = 0; boardIndex < boardSpaceImages.length; boardIndex++) {
+        boardSpaceImages[boardIndex].draw(batch, 1.0f);
+      }
+      batch.end();
+      frameBuffer.end();
+
+      batch.setProjectionMatrix(savedProjectionMatrix);
+
     }
 
     @Override
-    public void setSize(float width, float height) {
-      super.setSize(width, height);
-      backImage.setSize(width, height);
-      frontImage.setSize(width, height);
+    public void dispose() {
+      if (frameBuffer != null) {
+        frameBuffer.dispose();
+        frameBuffer = null;
+        frameBufferTextureRegion = null;
+      }
     }
 
+  }
+
+  /**
+   * The CardPileGroup class extends the CullingGroup class for a pile of stacked cards (the card
+   * deck or the discard pile). The cards in a pile have the same bounds, so only the top card is
+   * drawn.
+   */
+  protected class CardPileGroup extends CullingGroup {
+
     @Override
-    public void setWidth(float width) {
-      super.setWidth(width);
-      backImage.setWidth(width);
-      frontImage.setWidth(width);
+    protected void drawChildren(Batch batch, float parentAlpha) {
+      SnapshotArray<Actor> children = getChildren();
+      for (int i = children.size - 1; i >= 0; i--) {
+        Actor child = children.get(i);
+        if (child.isVisible()) {
+          if (!isCulled(child)) {
+            child.draw(batch, parentAlpha * getColor().a);
+          }
+          break;
+        }
+      }
     }
 
   }
 
-  protected class MarbleActor extends Group {
+  protected class CardActor extends TextureRegionActor {
+
+    /**
+     * The texture region for the front of the card.
+     */
+    protected final transient TextureRegion frontTextureRegion;
+    /**
+     * Whether or not the back of the card is shown.
+     */
+    protected transient boolean faceDown = false;
+    /**
+     * Whether or not the card is selected (highlighted).
+     */
+    protected transient boolean selected = false;
+    /**
+     * Whether or not the card is at its place in a hand (cleared when the card is animated).
+     */
+    protected transient boolean laidOut = false;
+    /**
+     * The runnable used to bring the card to the front of the cards layer and show the back of the
+     * card.
+     */
+    protected final transient Runnable toFrontFaceDownRunnable = new Runnable() {
+      @Override
+      public void run() {
+        bringToFront();
+        setFaceDown(true);
+      }
+    };
+    /**
+     * The runnable used to bring the card to the front of the cards layer and show the front of
+     * the card.
+     */
+    protected final transient Runnable toFrontFaceUpRunnable = new Runnable() {
+      @Override
+      public void run() {
+        bringToFront();
+        setFaceDown(false);
+      }
+    };
+    /**
+     * The runnable used to add the card to the discard pile.
+     */
+    protected final transient Runnable discardRunnable = new Runnable() {
+      @Override
+      public void run() {
+        if (getParent() != discardPileGroup) {
+          discardPileGroup.addActor(CardActor.this);
+        }
+      }
+    };
+
+    public CardActor(Card card) {
+      super(null);
+      frontTextureRegion = maurersMarblesGame.createTextureRegion("card_"
+          + card.toString().toLowerCase());
+      updateTextureRegion();
+    }
+
+    /**
+     * Returns the (reusable) runnable used to bring the card to the front and show the front or
+     * back of the card.
+     *
+     * @param faceDown whether or not to show the back of the card
+     * @return the runnable used to bring the card to the front and show the front or back of the
+     *     card
+     */
+    public Runnable getToFrontRunnable(boolean faceDown) {
+      return faceDown ? toFrontFaceDownRunnable : toFrontFaceUpRunnable;
+    }
+
+    /**
+     * Moves the card to the cards layer (if it is in a card pile) and brings it to the front of
+     * the layer. The card is added only if it is not already in the layer, since adding a child
+     * again does not change its order.
+     */
+    protected void bringToFront() {
+      if (getParent() != cardsGroup) {
+        cardsGroup.addActor(this);
+      }
+      toFront();
+      laidOut = false;
+    }
+
+    public void setFaceDown(boolean faceDown) {
+      this.faceDown = faceDown;
+      updateTextureRegion();
+    }
+
+    public void setSelected(boolean selected) {
+      // TODO change to hide/show selected image on top?
+      this.selected = selected;
+      updateTextureRegion();
+    }
+
+    /**
+     * Updates the texture region and tint for the face down and selected state.
+     */
+    protected void updateTextureRegion() {
+      if (faceDown) {
+        setTextureRegion(cardBackTextureRegion);
+        setTint(Color.SKY);
+      } else {
+        setTextureRegion(frontTextureRegion);
+        setTint(selected ? Color.YELLOW : Color.WHITE);
+      }
+    }
 
-    Image marbleImage;
+  }
+
+  protected class MarbleActor extends TextureRegionActor {
 
     public MarbleActor(int playerNumber) {
-      marbleImage = maurersMarblesGame.createImage("arrow.png");
-      marbleImage.setColor(getColorForPlayer(playerNumber));
-      addActor(marbleImage);
+      super(marbleTextureRegion);
+      setColor(getColorForPlayer(playerNumber));
     }
 
-    @Override
-    public void setSize(float width, float height) {
-      super.setSize(width, height);
-      marbleImage.setSize(width, height);
+    public void setDimmed(boolean dimmed) {
+      getColor().a = dimmed ? ALPHA_DIMMED_MARBLE : 1.0f;
     }
 
   }
 
-  protected class PlayerActor extends Group {
+  protected class PlayerActor extends TextureRegionActor {
 
-    Image backgroundImage;
     int playerNumber;
 
     public PlayerActor(int playerNumber) {
 
+      super(maurersMarblesGame.createTextureRegion("player_background"));
       this.playerNumber = playerNumber;
-
-      backgroundImage = maurersMarblesGame.createImage("player_background.png");
-      backgroundImage.setColor(getColorForPlayer(playerNumber));
-      addActor(backgroundImage);
+      setColor(getColorForPlayer(playerNumber));
 
     }
 
     public void update() {
-
       Rectangle rectangle = screenLayout.getBoundsForPlayer(playerNumber);
-      setPosition(rectangle.getX(), rectangle.getY());
-      setSize(rectangle.getWidth(), rectangle.getHeight());
+      setBounds(rectangle.getX(), rectangle.getY(), rectangle.getWidth(), rectangle.getHeight());
+    }
+
+  }
 
-      backgroundImage.setSize(getWidth(), getHeight());
+  /**
+   * The HandLayout class memoizes the layout of the cards in a hand. The card bounds are only
+   * recomputed (with the card hand view) when the bounds of the player or the number of cards
+   * change, and the cards that were last laid out are remembered so the cards that did not move
+   * can be skipped.
+   */
+  protected class HandLayout {
+
+    /**
+     * The x coordinate of the player bounds the card bounds were computed for.
+     */
+    protected transient float x = Float.NaN;
+    /**
+     * The y coordinate of the player bounds the card bounds were computed for.
+     */
+    protected transient float y = Float.NaN;
+    /**
+     * The width of the player bounds the card bounds were computed for.
+     */
+    protected transient float width = Float.NaN;
+    /**
+     * The height of the player bounds the card bounds were computed for.
+     */
+    protected transient float height = Float.NaN;
+    /**
+     * The number of cards the card bounds were computed for (or -1 if not computed).
+     */
+    protected transient int numberOfCards = -1;
+    /**
+     * The stage bounds of the cards (x, y, width and height for each card number).
+     */
+    protected transient float[] cardBounds = new float[4 * 5];
+    /**
+     * The width of the split cards (only used for the user).
+     */
+    protected transient float splitCardWidth;
+    /**
+     * The height of the split cards (only used for the user).
+     */
+    protected transient float splitCardHeight;
+    /**
+     * Whether or not the split card size changed since the split cards were last updated.
+     */
+    protected transient boolean splitCardBoundsChanged = false;
+    /**
+     * The cards that were last laid out (in order).
+     */
+    protected final transient Array<Card> cards = new Array<>(true, 5, Card.class);
+
+    /**
+     * Recomputes the card bounds if the given player bounds or number of cards changed.
+     *
+     * @param playerRectangle the bounds of the player
+     * @param numberOfCards the number of cards in the hand
+     * @return whether or not the card bounds changed
+     */
+    public boolean update(Rectangle playerRectangle, int numberOfCards) {
+
+      boolean playerBoundsChanged = playerRectangle.getX() != x || playerRectangle.getY() != y
+          || playerRectangle.getWidth() != width || playerRectangle.getHeight() != height;
+      if (!playerBoundsChanged && numberOfCards == this.numberOfCards) {
+        return false;
+      }
+
+      x = playerRectangle.getX();
+      y = playerRectangle.getY();
+      width = playerRectangle.getWidth();
+      height = playerRectangle.getHeight();
+      this.numberOfCards = numberOfCards;
+      cardHandView.update(width, height);
+
+      if (playerBoundsChanged) {
+        Rectangle cardRectangle = cardHandView.getBoundsForCard(0, splitCardActors.length,
+            splitCardActors.length);
+        splitCardWidth = cardRectangle.getWidth();
+        splitCardHeight = cardRectangle.getHeight();
+        splitCardBoundsChanged = true;
+      }
+
+      if (cardBounds.length < numberOfCards * 4) {
+        cardBounds = new float[numberOfCards * 4];
+      }
+      for (int cardNumber = 0; cardNumber < numberOfCards; cardNumber++) {
+        // TODO determine max number of cards based on number of players
+        Rectangle cardRectangle = cardHandView.getBoundsForCard(cardNumber, numberOfCards, 5);
+        int offset = cardNumber * 4;
+        cardBounds[offset] = x + cardRectangle.getX();
+        cardBounds[offset + 1] = y + cardRectangle.getY();
+        cardBounds[offset + 2] = cardRectangle.getWidth();
+        cardBounds[offset + 3] = cardRectangle.getHeight();
+      }
+
+      return true;
 
     }
 
+    /**
+     * Returns whether or not the given card was last laid out at the given card number.
+     *
+     * @param cardNumber the card number
+     * @param card the card
+     * @return whether or not the given card was last laid out at the given card number
+     */
+    public boolean isCardAt(int cardNumber, Card card) {
+      return cardNumber < cards.size && cards.get(cardNumber) == card;
+    }
+
+    /**
+     * Remembers the cards that were laid out.
+     *
+     * @param cards the cards that were laid out (in order)
+     */
+    public void setCards(List<Card> cards) {
+      this.cards.clear();
+      for (int i = 0; i < cards.size(); i++) {
+        this.cards.add(cards.get(i));
+      }
+    }
+
+    /**
+     * Marks the card bounds to be recomputed by the next update.
+     */
+    public void invalidate() {
+      numberOfCards = -1;
+      x = Float.NaN;
+    }
+
+  }
+
+  /**
+   * The RestoredGame class holds a game restored from the snapshot file (see restoreSnapshot()).
+   */
+  public static class RestoredGame {
+
+    /**
+     * The difficulty of the AI players.
+     */
+    protected final transient AiDifficulty aiDifficulty;
+    /**
+     * The replay that restored the game (finished).
+     */
+    protected final transient GameReplay gameReplay;
+
+    /**
+     * Creates a new RestoredGame.
+     *
+     * @param aiDifficulty the difficulty of the AI players
+     * @param gameReplay the replay that restored the game (finished)
+     */
+    protected RestoredGame(AiDifficulty aiDifficulty, GameReplay gameReplay) {
+      this.aiDifficulty = aiDifficulty;
+      this.gameReplay = gameReplay;
+    }
+
   }
 
   protected class UserPlaySelector extends PlaySelector {
 
     Set<Play> plays;
+    /**
+     * The index of the legal plays for the user input (built on the game logic thread).
+     */
+    protected final transient LegalPlayIndex legalPlayIndex = new LegalPlayIndex();
 
     @Override
     public void setAvailablePlays(Set<Play> plays) {
       super.setAvailablePlays(plays);
       this.plays = plays;
+      legalPlayIndex.build(game, USER_PLAYER_NUMBER, plays);
       waitForUserInput = true;
     }
 
@@ -5,26 +5,89 @@
 
 package com.exit104.maurersmarbles.libgdx.screens;
 
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.scenes.scene2d.Group;
+import com.badlogic.gdx.scenes.scene2d.InputEvent;
+import com.badlogic.gdx.scenes.scene2d.ui.Label;
+import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
 
+import com.exit104.maurersmarbles.libgdx.FontRegistry;
 import com.exit104.maurersmarbles.libgdx.MaurersMarblesGame;
+import com.exit104.maurersmarbles.libgdx.ai.AiDifficulty;
 
 /**
- * The MainMenuStageScreen class extends the StageScreen class to display the game's main menu.
+ * The MainMenuStageScreen class extends the StageScreen class to display the game's main menu. The
+ * game that was saved when the application was last paused is continued if there is one, otherwise
+ * the menu asks for the difficulty of the AI players and starts a new game at that difficulty.
  *
  * @author Daniel Uppenkamp
  * @since 1.0.0
  */
 public class MainMenuStageScreen extends StageScreen {
 
+  /**
+   * The number of players in a new game.
+   */
+  protected static final int NUMBER_OF_PLAYERS = 4;
+  /**
+   * The height (in world units) of the text of the menu items.
+   */
+  protected static final float LABEL_TEXT_HEIGHT = 24.0f;
+  /**
+   * The difficulty of the AI players that is highlighted in the menu.
+   */
+  public static final AiDifficulty DEFAULT_AI_DIFFICULTY = AiDifficulty.NORMAL;
+  /**
+   * The difficulty of the AI players in the new game that has been requested (or null if no new
+   * game has been requested).
+   */
+  protected transient AiDifficulty selectedAiDifficulty;
+  /**
+   * The group that contains a menu item for each difficulty of the AI players (only shown once it
+   * is known that there is no game to continue).
+   */
+  protected final transient Group aiDifficultyGroup = new Group();
+  /**
+   * The executor used to restore the game saved in the snapshot file (replaying the snapshot takes
+   * longer the longer the game is, so it is not done on the render thread).
+   */
+  protected final transient AsyncExecutor restoreExecutor = new AsyncExecutor(1, "restore");
+  /**
+   * The result of restoring the game saved in the snapshot file (or null if the game is not being
+   * restored).
+   */
+  protected transient AsyncResult<GameStageScreen.RestoredGame> restoreResult;
+
   /**
    * Creates a new MainMenuStageScreen.
    *
    * @param maurersMarblesGame the game for this screen
    */
   public MainMenuStageScreen(MaurersMarblesGame maurersMarblesGame) {
+
     super(maurersMarblesGame);
+    clearColor.set(Color.WHITE);
+
+    for (final AiDifficulty aiDifficulty : AiDifficulty.values()) {
+      String name = aiDifficulty.name();
+      Label label = maurersMarblesGame.createLabel(name.charAt(0)
+          + name.substring(1).toLowerCase(), FontRegistry.BOLD, LABEL_TEXT_HEIGHT,
+          aiDifficulty == DEFAULT_AI_DIFFICULTY ? Color.GOLD : Color.BLACK);
+      label.setSize(label.getPrefWidth(), label.getPrefHeight());
+      label.addListener(new ClickListener() {
+        @Override
+        public void clicked(InputEvent event, float x, float y) {
+          selectedAiDifficulty = aiDifficulty;
+          requestRender();
+        }
+      });
+      aiDifficultyGroup.addActor(label);
+    }
+    stage.addActor(aiDifficultyGroup);
+
   }
 
   @Override
@@ -33,14 +96,66 @@ public class MainMenuStageScreen extends StageScreen {
   }
 
   @Override
-  public void render(float delta) {
+  protected void update(float delta) {
 
-    stage.getCamera().update();
-    Gdx.gl.glClearColor(1, 1, 1, 1);
-    Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+    // prefetch the game assets in the background so that opening the game screen never blocks
+    boolean assetsLoaded = maurersMarblesGame.updateAssetLoading();
 
-    stage.act();
-    stage.draw();
+    if (restoreResult != null && restoreResult.isDone() && assetsLoaded) {
+      GameStageScreen.RestoredGame restoredGame = restoreResult.get();
+      restoreResult = null;
+      if (restoredGame != null) {
+        maurersMarblesGame.setScreen(GameStageScreen.createFromSnapshot(maurersMarblesGame,
+            restoredGame));
+        return;
+      }
+      // there is no game to continue, so a new game is started at the selected difficulty
+      aiDifficultyGroup.setVisible(true);
+    }
+
+    if (selectedAiDifficulty != null && assetsLoaded) {
+      AiDifficulty aiDifficulty = selectedAiDifficulty;
+      selectedAiDifficulty = null;
+      maurersMarblesGame.setScreen(new GameStageScreen(maurersMarblesGame, NUMBER_OF_PLAYERS,
+          aiDifficulty));
+    }
+
+  }
+
+  @Override
+  protected boolean isAnimating() {
+    return super.isAnimating() || !maurersMarblesGame.getAssetManager().isFinished()
+        || restoreResult != null;
+  }
+
+  @Override
+  public void dispose() {
+    super.dispose();
+    restoreExecutor.dispose();
+  }
+
+  @Override
+  public void hide() {
+    super.hide();
+    releaseGameAssets();
+  }
+
+  @Override
+  public void resize(int width, int height) {
+
+    super.resize(width, height);
+
+    // stack the menu items in the center of the screen
+    float totalHeight = 0.0f;
+    for (int i = 0; i < aiDifficultyGroup.getChildren().size; i++) {
+      totalHeight += aiDifficultyGroup.getChildren().get(i).getHeight();
+    }
+    float y = (viewport.getWorldHeight() - totalHeight) / 2.0f;
+    for (int i = 0; i < aiDifficultyGroup.getChildren().size; i++) {
+      Label label = (Label) aiDifficultyGroup.getChildren().get(i);
+      label.setPosition((viewport.getWorldWidth() - label.getWidth()) / 2.0f, y);
+      y += label.getHeight();
+    }
 
   }
 
@@ -51,9 +166,25 @@ public class MainMenuStageScreen extends StageScreen {
 
   @Override
   public void show() {
+
     super.show();
-    // TODO
-    maurersMarblesGame.setScreen(new GameStageScreen(maurersMarblesGame, 4));
+
+    // prefetch the game assets while the main menu is shown (the main menu is reused, so the
+    // reference is released when it is hidden)
+    acquireGameAssets();
+
+    // continue the game that was saved when the application was last paused (if any), which is
+    // restored while the assets are loading
+    aiDifficultyGroup.setVisible(false);
+    selectedAiDifficulty = null;
+    restoreResult = restoreExecutor.submit(new AsyncTask<GameStageScreen.RestoredGame>() {
+      @Override
+      public GameStageScreen.RestoredGame call() throws Exception {
+        return GameStageScreen.restoreSnapshot();
+      }
+    });
+    requestRender();
+
   }
 
 }
@@ -5,15 +5,16 @@
 
 package com.exit104.maurersmarbles.libgdx.screens;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.GL20;
-import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.actions.Actions;
 import com.badlogic.gdx.scenes.scene2d.ui.Label;
-import com.badlogic.gdx.scenes.scene2d.ui.Label.LabelStyle;
 import com.badlogic.gdx.utils.Align;
 
+import com.exit104.maurersmarbles.libgdx.FontRegistry;
 import com.exit104.maurersmarbles.libgdx.MaurersMarblesGame;
 
 /**
@@ -33,6 +34,30 @@ public class SplashStageScreen extends StageScreen {
    * The amount of time to fade in/out.
    */
   protected static final float FADE_DURATION = 0.0f;
+  /**
+   * The height of the progress bar as a fraction of the screen height.
+   */
+  protected static final float PROGRESS_BAR_HEIGHT_SCALE_FACTOR = 0.02f;
+  /**
+   * The height (in world units) of the label text.
+   */
+  protected static final float LABEL_TEXT_HEIGHT = 48.0f;
+  /**
+   * Whether or not the splash screen has finished (faded out and switched to the main menu).
+   */
+  protected transient boolean finished = false;
+  /**
+   * The label displayed on the splash screen.
+   */
+  protected transient Label label;
+  /**
+   * The progress bar that displays the asset loading progress.
+   */
+  protected transient ProgressBarActor progressBarActor;
+  /**
+   * The white texture used to draw the progress bar (the texture atlas is not loaded yet).
+   */
+  protected transient Texture whiteTexture;
 
   /**
    * Creates a new SplashStageScreen.
@@ -41,6 +66,7 @@ public class SplashStageScreen extends StageScreen {
    */
   public SplashStageScreen(MaurersMarblesGame maurersMarblesGame) {
     super(maurersMarblesGame);
+    clearColor.set(Color.BLACK);
   }
 
   @Override
@@ -49,15 +75,48 @@ public class SplashStageScreen extends StageScreen {
   }
 
   @Override
-  public void render(float delta) {
+  protected void update(float delta) {
+
+    // load the game assets using a per frame time budget so the render thread never blocks
+    boolean assetsLoaded = maurersMarblesGame.updateAssetLoading();
+    progressBarActor.setProgress(maurersMarblesGame.getAssetManager().getProgress());
+
+    // wait for the assets and the fade in/display time before fading out
+    if (assetsLoaded && !finished && !label.hasActions()) {
+      finished = true;
+      label.addAction(Actions.sequence(
+          Actions.fadeOut(FADE_DURATION),
+          Actions.run(new Runnable() {
+            @Override
+            public void run() {
+              maurersMarblesGame.setScreen(
+                  maurersMarblesGame.getScreenManager().getMainMenuScreen());
+            }
+          })));
+    }
+
+  }
 
-    stage.getCamera().update();
-    Gdx.gl.glClearColor(0, 0, 0, 1);
-    Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+  @Override
+  protected boolean isAnimating() {
+    // keep rendering until the fade out has started (it is started from update())
+    return super.isAnimating() || !finished;
+  }
 
-    stage.act();
-    stage.draw();
+  @Override
+  public void dispose() {
+    super.dispose();
+    if (whiteTexture != null) {
+      whiteTexture.dispose();
+    }
+  }
 
+  @Override
+  public void resize(int width, int height) {
+    super.resize(width, height);
+    float progressBarHeight = viewport.getWorldHeight() * PROGRESS_BAR_HEIGHT_SCALE_FACTOR;
+    progressBarActor.setBounds(0, viewport.getWorldHeight() - progressBarHeight,
+        viewport.getWorldWidth(), progressBarHeight);
   }
 
   @Override
@@ -70,22 +129,50 @@ public class SplashStageScreen extends StageScreen {
 
     super.show();
 
+    // queue the game assets, they are loaded a little at a time in render()
+    acquireGameAssets();
+
+    Pixmap pixmap = new Pixmap(1, 1, Pixmap.Format.RGBA8888);
+    pixmap.setColor(Color.WHITE);
+    pixmap.fill();
+    whiteTexture = new Texture(pixmap);
+    pixmap.dispose();
+
+    progressBarActor = new ProgressBarActor();
+    progressBarActor.setColor(Color.GOLD);
+    stage.addActor(progressBarActor);
+
     // TODO Add graphic logo
-    Label label = new Label("Exit104", new LabelStyle(new BitmapFont(), null));
+    label = maurersMarblesGame.createLabel("Exit104", FontRegistry.BOLD, LABEL_TEXT_HEIGHT,
+        Color.WHITE);
     label.setPosition(0, 0, Align.center);
     stage.addActor(label);
 
     label.setColor(new Color(1f, 1f, 1f, 0f));
     label.addAction(Actions.sequence(
         Actions.fadeIn(FADE_DURATION),
-        Actions.delay(DISPLAY_DURATION),
-        Actions.fadeOut(FADE_DURATION),
-        Actions.run(new Runnable() {
-          @Override
-          public void run() {
-            maurersMarblesGame.setScreen(new MainMenuStageScreen(maurersMarblesGame));
-          }
-        })));
+        Actions.delay(DISPLAY_DURATION)));
+
+  }
+
+  protected class ProgressBarActor extends Actor {
+
+    /**
+     * The loading progress (0 to 1).
+     */
+    protected transient float progress = 0.0f;
+
+    public void setProgress(float progress) {
+      this.progress = Math.max(0.0f, Math.min(1.0f, progress));
+    }
+
+    @Override
+    public void draw(Batch batch, float parentAlpha) {
+      Color color = getColor();
+      batch.setColor(color.r, color.g, color.b, color.a * parentAlpha);
+      batch.draw(whiteTexture, getX(), getY(), getWidth() * progress, getHeight());
+      batch.setColor(Color.WHITE);
+    }
 
   }
 
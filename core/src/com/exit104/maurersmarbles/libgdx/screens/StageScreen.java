@@ -6,9 +6,16 @@
 package com.exit104.maurersmarbles.libgdx.screens;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.InputMultiplexer;
 import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.Group;
 import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.SnapshotArray;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.badlogic.gdx.utils.viewport.ExtendViewport;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
@@ -19,6 +26,12 @@ import com.exit104.maurersmarbles.libgdx.MaurersMarblesGame;
  * The StageScreen class implements the Screen interface to provide the methods for using a stage in
  * a screen.
  *
+ * <p>The actors are acted with a fixed time step. The time since the last frame is added to an
+ * accumulator and the stage is acted once for each whole time step in the accumulator, so the
+ * animations always advance by the same amounts no matter how long the frames take. The clock can
+ * also be driven manually with advanceTime() (for tests, benchmarks and replays), in which case
+ * render() only draws the stage.
+ *
  * @author Daniel Uppenkamp
  * @since 1.0.0
  */
@@ -36,6 +49,44 @@ public abstract class StageScreen implements Screen {
    * The viewport for the stage.
    */
   protected final transient Viewport viewport;
+  /**
+   * The color used to clear the screen before the stage is drawn.
+   */
+  protected final transient Color clearColor = new Color(Color.BLACK);
+  /**
+   * The input processor for the screen (the performance overlay followed by the stage).
+   */
+  protected final transient InputMultiplexer inputMultiplexer;
+  /**
+   * The number of references to the game assets held by this screen (released when the screen is
+   * disposed).
+   */
+  protected transient int gameAssetReferences = 0;
+  /**
+   * The fixed time step (in seconds) the stage is acted with.
+   */
+  public static final float TIME_STEP = 1.0f / 60.0f;
+  /**
+   * The maximum frame time (in seconds) added to the accumulator, so the animations do not jump
+   * (or spiral) after a long hitch. Slow frames below this are caught up in full, so the
+   * animations keep their speed on slow devices.
+   */
+  public static final float MAX_FRAME_TIME = 0.25f;
+  /**
+   * The time (in seconds) that has not been acted yet (always less than a time step after the
+   * stage is acted).
+   */
+  protected transient float accumulator = 0.0f;
+  /**
+   * Whether or not the clock is driven manually with advanceTime() instead of by render().
+   */
+  protected transient boolean manualClock = false;
+  /**
+   * Whether or not the last frame left the screen idle (nothing was animating, so no frame was
+   * requested). The time of the first frame after the screen was idle is not acted, since it
+   * includes the time the app was idle between turns (rendering is not continuous).
+   */
+  protected transient boolean idle = true;
 
   /**
    * Creates a new StageScreen.
@@ -52,15 +103,175 @@ public abstract class StageScreen implements Screen {
     //viewport = new ExtendViewport(1280, 720, 1440, 720);
     //viewport = new ExtendViewport(720, 1280, 720, 1440);
     stage = new Stage(viewport);
+    // the render scheduler in render() decides when another frame is needed
+    stage.setActionsRequestRendering(false);
 
     ((OrthographicCamera) stage.getCamera()).setToOrtho(true, viewport.getWorldWidth(),
         viewport.getWorldHeight());
 
+    inputMultiplexer = new InputMultiplexer(
+        maurersMarblesGame.getPerformanceOverlay().getInputProcessor(), stage);
+
+  }
+
+  /**
+   * Updates the screen before the stage is acted and drawn. Subclasses should override this method
+   * instead of render() so the frame is timed by the performance overlay.
+   *
+   * @param delta the time in seconds since the last render
+   */
+  protected void update(float delta) {
+    // do nothing
+  }
+
+  /**
+   * Returns whether or not the screen is animating and needs another frame. Rendering is not
+   * continuous, so a frame is only requested while this returns true. The default implementation
+   * returns whether or not any actor on the stage has pending actions. Subclasses with other
+   * animated state should override this method.
+   *
+   * @return whether or not the screen is animating and needs another frame
+   */
+  protected boolean isAnimating() {
+    return hasActions(stage.getRoot());
+  }
+
+  /**
+   * Requests a frame for a change made outside of render() (for example an action added from an
+   * input listener). Frames requested while animating are handled by render().
+   */
+  protected void requestRender() {
+    Gdx.graphics.requestRendering();
+  }
+
+  /**
+   * Returns whether or not the given actor or any of its descendants has pending actions.
+   *
+   * @param actor the actor
+   * @return whether or not the given actor or any of its descendants has pending actions
+   */
+  protected static boolean hasActions(Actor actor) {
+    if (actor.hasActions()) {
+      return true;
+    }
+    if (actor instanceof Group) {
+      SnapshotArray<Actor> children = ((Group) actor).getChildren();
+      for (int i = 0; i < children.size; i++) {
+        if (hasActions(children.get(i))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns whether or not the clock is driven manually with advanceTime().
+   *
+   * @return whether or not the clock is driven manually with advanceTime()
+   */
+  public boolean isManualClock() {
+    return manualClock;
+  }
+
+  /**
+   * Sets whether or not the clock is driven manually with advanceTime(). While the clock is driven
+   * manually render() only draws the stage, so the animations advance by exactly the time passed
+   * to advanceTime() as fast as it is called.
+   *
+   * @param manualClock whether or not the clock is driven manually with advanceTime()
+   */
+  public void setManualClock(boolean manualClock) {
+    this.manualClock = manualClock;
+    accumulator = 0.0f;
+  }
+
+  /**
+   * Advances the clock by the given time (in seconds). The screen is updated and the stage is
+   * acted once for each whole time step (the rest is kept for the next call), so advancing by one
+   * second is always sixty steps. This is intended for a manually driven clock (see
+   * setManualClock()).
+   *
+   * @param seconds the time to advance the clock by
+   */
+  public void advanceTime(float seconds) {
+    accumulator += seconds;
+    while (accumulator >= TIME_STEP) {
+      accumulator -= TIME_STEP;
+      update(TIME_STEP);
+      stage.act(TIME_STEP);
+    }
+  }
+
+  /**
+   * Acts the stage once for each whole time step in the accumulator.
+   */
+  protected void actTimeSteps() {
+    while (accumulator >= TIME_STEP) {
+      accumulator -= TIME_STEP;
+      stage.act(TIME_STEP);
+    }
+  }
+
+  @Override
+  public void render(float delta) {
+
+    stage.getCamera().update();
+    Gdx.gl.glClearColor(clearColor.r, clearColor.g, clearColor.b, clearColor.a);
+    Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+
+    long startNanos;
+    if (manualClock) {
+      startNanos = TimeUtils.nanoTime();
+    } else {
+      update(delta);
+      startNanos = TimeUtils.nanoTime();
+      if (idle) {
+        accumulator = 0.0f;
+      } else {
+        accumulator += Math.min(delta, MAX_FRAME_TIME);
+      }
+      actTimeSteps();
+    }
+    long actNanos = TimeUtils.nanoTime();
+    stage.draw();
+    long drawNanos = TimeUtils.nanoTime();
+
+    maurersMarblesGame.getPerformanceOverlay().endFrame(stage, delta, actNanos - startNanos,
+        drawNanos - actNanos);
+
+    // keep rendering only while something is animating so the app is idle between turns (a
+    // manually driven clock does not need frames)
+    idle = manualClock || !isAnimating();
+    if (!idle) {
+      Gdx.graphics.requestRendering();
+    }
+
+  }
+
+  /**
+   * Acquires a reference to the game assets for this screen (see
+   * MaurersMarblesGame.acquireGameAssets()).
+   */
+  protected void acquireGameAssets() {
+    maurersMarblesGame.acquireGameAssets();
+    gameAssetReferences++;
+  }
+
+  /**
+   * Releases all of the references to the game assets held by this screen.
+   */
+  protected void releaseGameAssets() {
+    for (; gameAssetReferences > 0; gameAssetReferences--) {
+      maurersMarblesGame.releaseGameAssets();
+    }
   }
 
   @Override
   public void dispose() {
+    // disposing the stage also removes the actors and their listeners
     stage.dispose();
+    releaseGameAssets();
   }
 
   @Override
@@ -78,7 +289,7 @@ public abstract class StageScreen implements Screen {
 
   @Override
   public void show() {
-    Gdx.input.setInputProcessor(stage);
+    Gdx.input.setInputProcessor(inputMultiplexer);
   }
 
 }
@@ -14,6 +14,13 @@ public class DesktopLauncher {
 
   public static void main(String[] arg) {
     LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
-    new LwjglApplication(new MaurersMarblesGame(), config);
+    MaurersMarblesGame maurersMarblesGame = new MaurersMarblesGame();
+    for (String argument : arg) {
+      // --perf-csv=<path> writes the performance overlay stats to a rolling CSV file
+      if (argument.startsWith("--perf-csv=")) {
+        maurersMarblesGame.setPerformanceCsvPath(argument.substring("--perf-csv=".length()));
+      }
+    }
+    new LwjglApplication(maurersMarblesGame, config);
   }
 }
@@ -0,0 +1,243 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx.simulator;
+
+import com.exit104.maurersmarbles.Game;
+import com.exit104.maurersmarbles.Marble;
+import com.exit104.maurersmarbles.Player;
+import com.exit104.maurersmarbles.event.CannotPlayGameEvent;
+import com.exit104.maurersmarbles.event.DealtCardGameEvent;
+import com.exit104.maurersmarbles.event.Event;
+import com.exit104.maurersmarbles.event.EventListener;
+import com.exit104.maurersmarbles.event.ExitedStateGameEvent;
+import com.exit104.maurersmarbles.event.MovedMarbleGameEvent;
+import com.exit104.maurersmarbles.event.PlayedCardGameEvent;
+import com.exit104.maurersmarbles.event.ShuffledCardDeckGameEvent;
+
+/**
+ * The AggregateGameStats class implements the EventListener interface to accumulate the game stats
+ * for many simulated games. An instance is not thread safe, each simulation thread should use its
+ * own instance and the instances should be combined using merge() at the end.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class AggregateGameStats implements EventListener {
+
+  /**
+   * The number of players in each game.
+   */
+  protected final transient int numberOfPlayers;
+  /**
+   * The number of games that have been completed.
+   */
+  protected transient long numberOfGames = 0;
+  /**
+   * The number of player turns across all games.
+   */
+  protected transient long numberOfTurns = 0;
+  /**
+   * The number of cards dealt across all games.
+   */
+  protected transient long numberOfCardsDealt = 0;
+  /**
+   * The number of times the card deck was shuffled across all games.
+   */
+  protected transient long numberOfShuffles = 0;
+  /**
+   * The number of elapsed nanoseconds spent simulating the games.
+   */
+  protected transient long elapsedNanos = 0;
+  /**
+   * The game that is currently being simulated.
+   */
+  protected transient Game game;
+  /**
+   * The number of cards played by each player. The index into the array is the player number.
+   */
+  protected final transient long[] numberOfCardsPlayed;
+  /**
+   * The number of times each player could not play. The index into the array is the player number.
+   */
+  protected final transient long[] numberOfCannotPlays;
+  /**
+   * The number of marble moves by each player. The index into the array is the player number.
+   */
+  protected final transient long[] numberOfMarbleMoves;
+  /**
+   * The number of games in which each player finished with all of their marbles home. The index
+   * into the array is the player number.
+   */
+  protected final transient long[] numberOfWins;
+
+  /**
+   * Creates a new AggregateGameStats.
+   *
+   * @param numberOfPlayers the number of players in each game
+   */
+  public AggregateGameStats(int numberOfPlayers) {
+    this.numberOfPlayers = numberOfPlayers;
+    numberOfCardsPlayed = new long[numberOfPlayers];
+    numberOfCannotPlays = new long[numberOfPlayers];
+    numberOfMarbleMoves = new long[numberOfPlayers];
+    numberOfWins = new long[numberOfPlayers];
+  }
+
+  /**
+   * Starts collecting stats for the given game.
+   *
+   * @param game the game that is about to be simulated
+   */
+  public void startGame(Game game) {
+    this.game = game;
+  }
+
+  /**
+   * Finishes collecting stats for the current game.
+   *
+   * @param elapsedNanos the number of nanoseconds it took to simulate the game
+   */
+  public void endGame(long elapsedNanos) {
+
+    numberOfGames++;
+    this.elapsedNanos += elapsedNanos;
+
+    // a player has won if all of their marbles are in their home spaces
+    for (Player player : game.getPlayers()) {
+      if (isHome(player)) {
+        numberOfWins[player.getPlayerNumber()]++;
+      }
+    }
+
+    game = null;
+
+  }
+
+  /**
+   * Returns whether or not all of the marbles for the given player are in their home spaces.
+   *
+   * @param player the player to check
+   * @return whether or not all of the marbles for the given player are in their home spaces
+   */
+  protected boolean isHome(Player player) {
+    for (Marble marble : player.getMarbles()) {
+      boolean home = false;
+      for (int boardIndex : game.getBoard().getHomeBoardIndexes(player.getPlayerNumber())) {
+        if (boardIndex == marble.getBoardIndex()) {
+          home = true;
+          break;
+        }
+      }
+      if (!home) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Adds the stats from the given aggregate game stats to these stats.
+   *
+   * @param aggregateGameStats the stats to add
+   */
+  public void merge(AggregateGameStats aggregateGameStats) {
+    if (aggregateGameStats.numberOfPlayers != numberOfPlayers) {
+      throw new IllegalArgumentException("Invalid number of players: "
+          + aggregateGameStats.numberOfPlayers);
+    }
+    numberOfGames += aggregateGameStats.numberOfGames;
+    numberOfTurns += aggregateGameStats.numberOfTurns;
+    numberOfCardsDealt += aggregateGameStats.numberOfCardsDealt;
+    numberOfShuffles += aggregateGameStats.numberOfShuffles;
+    elapsedNanos += aggregateGameStats.elapsedNanos;
+    for (int i = 0; i < numberOfPlayers; i++) {
+      numberOfCardsPlayed[i] += aggregateGameStats.numberOfCardsPlayed[i];
+      numberOfCannotPlays[i] += aggregateGameStats.numberOfCannotPlays[i];
+      numberOfMarbleMoves[i] += aggregateGameStats.numberOfMarbleMoves[i];
+      numberOfWins[i] += aggregateGameStats.numberOfWins[i];
+    }
+  }
+
+  /**
+   * Returns the number of games that have been completed.
+   *
+   * @return the number of games that have been completed
+   */
+  public long getNumberOfGames() {
+    return numberOfGames;
+  }
+
+  /**
+   * Returns the number of elapsed nanoseconds spent simulating the games (summed across threads).
+   *
+   * @return the number of elapsed nanoseconds spent simulating the games
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  @Override
+  public void handleEvent(Event event) {
+    if (event instanceof PlayedCardGameEvent) {
+      numberOfCardsPlayed[((PlayedCardGameEvent) event).getPlayerNumber()]++;
+    } else if (event instanceof MovedMarbleGameEvent) {
+      numberOfMarbleMoves[((MovedMarbleGameEvent) event).getPlayerNumber()]++;
+    } else if (event instanceof DealtCardGameEvent) {
+      numberOfCardsDealt++;
+    } else if (event instanceof CannotPlayGameEvent) {
+      numberOfCannotPlays[((CannotPlayGameEvent) event).getPlayerNumber()]++;
+    } else if (event instanceof ShuffledCardDeckGameEvent) {
+      numberOfShuffles++;
+    } else if (event instanceof ExitedStateGameEvent
+        && ((ExitedStateGameEvent) event).getState() == Game.State.PLAYER_TURN) {
+      numberOfTurns++;
+    }
+  }
+
+  @Override
+  public String toString() {
+
+    StringBuilder stringBuilder = new StringBuilder();
+    stringBuilder.append("games=").append(numberOfGames).append('\n');
+    stringBuilder.append("players=").append(numberOfPlayers).append('\n');
+    stringBuilder.append("turns=").append(numberOfTurns).append('\n');
+    stringBuilder.append("turns/game=").append(average(numberOfTurns)).append('\n');
+    stringBuilder.append("cardsDealt/game=").append(average(numberOfCardsDealt)).append('\n');
+    stringBuilder.append("shuffles/game=").append(average(numberOfShuffles)).append('\n');
+    for (int i = 0; i < numberOfPlayers; i++) {
+      stringBuilder.append("player").append(i).append(".wins=").append(numberOfWins[i])
+          .append(" (").append(percent(numberOfWins[i])).append("%)")
+          .append(" cardsPlayed/game=").append(average(numberOfCardsPlayed[i]))
+          .append(" marbleMoves/game=").append(average(numberOfMarbleMoves[i]))
+          .append(" cannotPlays/game=").append(average(numberOfCannotPlays[i]))
+          .append('\n');
+    }
+    stringBuilder.append("cpuSeconds=").append(elapsedNanos / 1.0e9).append('\n');
+    return stringBuilder.toString();
+
+  }
+
+  /**
+   * Returns the given total averaged over the number of games.
+   *
+   * @param total the total to average
+   * @return the given total averaged over the number of games
+   */
+  protected double average(long total) {
+    return numberOfGames == 0 ? 0.0 : (double) total / numberOfGames;
+  }
+
+  /**
+   * Returns the given count as a percent of the number of games.
+   *
+   * @param count the count
+   * @return the given count as a percent of the number of games
+   */
+  protected double percent(long count) {
+    return average(count * 100);
+  }
+
+}
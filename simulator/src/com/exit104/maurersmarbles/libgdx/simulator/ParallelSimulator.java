@@ -0,0 +1,112 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ParallelSimulator class simulates independent games on multiple threads. Each worker thread
+ * owns its own Simulator (and AggregateGameStats), so the workers never share mutable state while
+ * the games are running. The per worker stats are merged once all of the workers have finished.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class ParallelSimulator {
+
+  /**
+   * The number of games a worker claims at a time. Claiming games in batches keeps the workers
+   * balanced (games take different amounts of time) without contending on every game.
+   */
+  protected static final int BATCH_SIZE = 16;
+  /**
+   * The number of players in each game.
+   */
+  protected final transient int numberOfPlayers;
+  /**
+   * The number of worker threads.
+   */
+  protected final transient int numberOfThreads;
+
+  /**
+   * Creates a new ParallelSimulator.
+   *
+   * @param numberOfPlayers the number of players in each game
+   * @param numberOfThreads the number of worker threads
+   */
+  public ParallelSimulator(int numberOfPlayers, int numberOfThreads) {
+    if (numberOfThreads < 1) {
+      throw new IllegalArgumentException("Invalid number of threads: " + numberOfThreads);
+    }
+    this.numberOfPlayers = numberOfPlayers;
+    this.numberOfThreads = numberOfThreads;
+  }
+
+  /**
+   * Simulates the given number of games and returns the combined stats.
+   *
+   * @param numberOfGames the number of games to simulate
+   * @return the combined stats for all of the games
+   */
+  public AggregateGameStats run(final long numberOfGames) {
+
+    final AtomicLong nextGame = new AtomicLong();
+
+    ThreadFactory threadFactory = new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "simulator");
+        thread.setDaemon(true);
+        return thread;
+      }
+    };
+    ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads,
+        threadFactory);
+
+    try {
+
+      List<Future<AggregateGameStats>> futures = new ArrayList<>();
+      for (int i = 0; i < numberOfThreads; i++) {
+        futures.add(executorService.submit(new Callable<AggregateGameStats>() {
+          @Override
+          public AggregateGameStats call() {
+            Simulator simulator = new Simulator(numberOfPlayers);
+            long firstGame;
+            while ((firstGame = nextGame.getAndAdd(BATCH_SIZE)) < numberOfGames) {
+              simulator.run(Math.min(BATCH_SIZE, numberOfGames - firstGame));
+            }
+            return simulator.getAggregateGameStats();
+          }
+        }));
+      }
+
+      // combine the per worker stats
+      AggregateGameStats aggregateGameStats = new AggregateGameStats(numberOfPlayers);
+      for (Future<AggregateGameStats> future : futures) {
+        aggregateGameStats.merge(future.get());
+      }
+      return aggregateGameStats;
+
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Simulation interrupted", ex);
+    } catch (ExecutionException ex) {
+      throw new IllegalStateException("Simulation failed", ex.getCause());
+    } finally {
+      executorService.shutdownNow();
+    }
+
+  }
+
+}
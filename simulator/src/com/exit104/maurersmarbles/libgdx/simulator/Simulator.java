@@ -0,0 +1,108 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx.simulator;
+
+import com.exit104.maurersmarbles.Game;
+import com.exit104.maurersmarbles.ScoreBasedPlaySelector;
+import com.exit104.maurersmarbles.event.Event;
+import com.exit104.maurersmarbles.event.EventListener;
+import com.exit104.maurersmarbles.event.ExitedStateGameEvent;
+
+/**
+ * The Simulator class plays complete all AI games without any rendering or animation and collects
+ * the results in an AggregateGameStats.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class Simulator implements EventListener {
+
+  /**
+   * The maximum number of times to advance a single game before giving up on it.
+   */
+  protected static final int MAX_ADVANCES_PER_GAME = 1000000;
+  /**
+   * The number of players in each game.
+   */
+  protected final transient int numberOfPlayers;
+  /**
+   * The stats for the simulated games.
+   */
+  protected final transient AggregateGameStats aggregateGameStats;
+  /**
+   * Whether or not the current game is over.
+   */
+  protected transient boolean gameOver;
+
+  /**
+   * Creates a new Simulator.
+   *
+   * @param numberOfPlayers the number of players in each game
+   */
+  public Simulator(int numberOfPlayers) {
+    this.numberOfPlayers = numberOfPlayers;
+    aggregateGameStats = new AggregateGameStats(numberOfPlayers);
+  }
+
+  /**
+   * Returns the stats for the simulated games.
+   *
+   * @return the stats for the simulated games
+   */
+  public AggregateGameStats getAggregateGameStats() {
+    return aggregateGameStats;
+  }
+
+  /**
+   * Simulates the given number of games.
+   *
+   * @param numberOfGames the number of games to simulate
+   */
+  public void run(long numberOfGames) {
+    for (long i = 0; i < numberOfGames; i++) {
+      runGame();
+    }
+  }
+
+  /**
+   * Simulates a single game from start to finish.
+   */
+  public void runGame() {
+
+    long startNanos = System.nanoTime();
+
+    Game game = new Game(numberOfPlayers);
+    for (int playerNumber = 0; playerNumber < numberOfPlayers; playerNumber++) {
+      game.getPlayers().get(playerNumber).setPlaySelector(
+          new ScoreBasedPlaySelector(game, playerNumber));
+    }
+    game.addEventListener(aggregateGameStats);
+    game.addEventListener(this);
+    aggregateGameStats.startGame(game);
+
+    gameOver = false;
+    int advances = 0;
+    while (!gameOver) {
+      if (++advances > MAX_ADVANCES_PER_GAME) {
+        throw new IllegalStateException("Game did not finish after " + MAX_ADVANCES_PER_GAME
+            + " advances");
+      }
+      game.advance();
+    }
+
+    aggregateGameStats.endGame(System.nanoTime() - startNanos);
+
+  }
+
+  @Override
+  public void handleEvent(Event event) {
+    if (event instanceof ExitedStateGameEvent
+        && ((ExitedStateGameEvent) event).getState() == Game.State.GAME_OVER) {
+      gameOver = true;
+    }
+  }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * You may only use this file in accordance with the terms and conditions
+ * outlined in the accompanying LICENSE file.
+ */
+
+package com.exit104.maurersmarbles.libgdx.simulator;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The SimulatorLauncher class is the headless entry point used to simulate many all AI games.
+ *
+ * <p>Usage: SimulatorLauncher [--threads=N] [--scaling] [numberOfGames] [numberOfPlayers]
+ * [outputFile]
+ *
+ * <p>The --threads option sets the number of worker threads (defaults to the number of available
+ * processors). The --scaling option runs the same number of games with 1, 2, 4, ... threads (up to
+ * the number of worker threads) and reports the games/sec and speedup for each thread count.
+ *
+ * @author Daniel Uppenkamp
+ * @since 1.0.0
+ */
+public class SimulatorLauncher {
+
+  /**
+   * The default number of games to simulate.
+   */
+  protected static final long DEFAULT_NUMBER_OF_GAMES = 1000;
+  /**
+   * The default number of players in each game.
+   */
+  protected static final int DEFAULT_NUMBER_OF_PLAYERS = 4;
+
+  public static void main(String[] args) throws IOException {
+
+    int numberOfThreads = Runtime.getRuntime().availableProcessors();
+    boolean scaling = false;
+    List<String> positionalArgs = new ArrayList<>();
+    for (String arg : args) {
+      if (arg.startsWith("--threads=")) {
+        numberOfThreads = Integer.parseInt(arg.substring("--threads=".length()));
+      } else if (arg.equals("--scaling")) {
+        scaling = true;
+      } else {
+        positionalArgs.add(arg);
+      }
+    }
+
+    long numberOfGames = positionalArgs.size() > 0 ? Long.parseLong(positionalArgs.get(0))
+        : DEFAULT_NUMBER_OF_GAMES;
+    int numberOfPlayers = positionalArgs.size() > 1 ? Integer.parseInt(positionalArgs.get(1))
+        : DEFAULT_NUMBER_OF_PLAYERS;
+    String outputFile = positionalArgs.size() > 2 ? positionalArgs.get(2) : null;
+
+    String report = scaling ? runScaling(numberOfGames, numberOfPlayers, numberOfThreads)
+        : run(numberOfGames, numberOfPlayers, numberOfThreads);
+
+    System.out.print(report);
+    if (outputFile != null) {
+      try (Writer writer = new FileWriter(outputFile)) {
+        writer.write(report);
+      }
+    }
+
+  }
+
+  /**
+   * Simulates the given number of games and returns the report.
+   *
+   * @param numberOfGames the number of games to simulate
+   * @param numberOfPlayers the number of players in each game
+   * @param numberOfThreads the number of worker threads
+   * @return the report for the simulated games
+   */
+  protected static String run(long numberOfGames, int numberOfPlayers, int numberOfThreads) {
+
+    long startNanos = System.nanoTime();
+    AggregateGameStats aggregateGameStats = new ParallelSimulator(numberOfPlayers,
+        numberOfThreads).run(numberOfGames);
+    long elapsedNanos = System.nanoTime() - startNanos;
+
+    StringBuilder report = new StringBuilder(aggregateGameStats.toString());
+    report.append("threads=").append(numberOfThreads).append('\n');
+    report.append("wallSeconds=").append(elapsedNanos / 1.0e9).append('\n');
+    report.append("games/sec=").append(numberOfGames / (elapsedNanos / 1.0e9)).append('\n');
+    return report.toString();
+
+  }
+
+  /**
+   * Simulates the given number of games with 1, 2, 4, ... threads and returns a CSV report of the
+   * games/sec, speedup and parallel efficiency for each thread count.
+   *
+   * @param numberOfGames the number of games to simulate for each thread count
+   * @param numberOfPlayers the number of players in each game
+   * @param maxNumberOfThreads the maximum number of worker threads
+   * @return the scaling report
+   */
+  protected static String runScaling(long numberOfGames, int numberOfPlayers,
+      int maxNumberOfThreads) {
+
+    // warm up the JIT so the single thread baseline is not penalized
+    new ParallelSimulator(numberOfPlayers, maxNumberOfThreads).run(
+        Math.max(1, numberOfGames / 10));
+
+    StringBuilder report = new StringBuilder("threads,games/sec,speedup,efficiency\n");
+    double baselineGamesPerSecond = 0.0;
+    for (int numberOfThreads = 1; numberOfThreads <= maxNumberOfThreads;
+        numberOfThreads = nextThreadCount(numberOfThreads, maxNumberOfThreads)) {
+
+      long startNanos = System.nanoTime();
+      new ParallelSimulator(numberOfPlayers, numberOfThreads).run(numberOfGames);
+      double gamesPerSecond = numberOfGames / ((System.nanoTime() - startNanos) / 1.0e9);
+
+      if (numberOfThreads == 1) {
+        baselineGamesPerSecond = gamesPerSecond;
+      }
+      double speedup = gamesPerSecond / baselineGamesPerSecond;
+      report.append(numberOfThreads).append(',').append(gamesPerSecond).append(',')
+          .append(speedup).append(',').append(speedup / numberOfThreads).append('\n');
+
+    }
+    return report.toString();
+
+  }
+
+  /**
+   * Returns the next thread count for the scaling report (doubles the thread count, but always
+   * includes the maximum number of threads).
+   *
+   * @param numberOfThreads the current thread count
+   * @param maxNumberOfThreads the maximum number of threads
+   * @return the next thread count
+   */
+  protected static int nextThreadCount(int numberOfThreads, int maxNumberOfThreads) {
+    if (numberOfThreads < maxNumberOfThreads && numberOfThreads * 2 > maxNumberOfThreads) {
+      return maxNumberOfThreads;
+    }
+    return numberOfThreads * 2;
+  }
+
+}